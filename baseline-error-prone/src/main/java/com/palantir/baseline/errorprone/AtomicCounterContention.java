@@ -0,0 +1,174 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.errorprone;
+
+import com.google.auto.service.AutoService;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.BugPattern.SeverityLevel;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.bugpatterns.BugChecker.VariableTreeMatcher;
+import com.google.errorprone.fixes.SuggestedFix;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.Matchers;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.ExpressionStatementTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreePathScanner;
+import com.sun.tools.javac.code.Symbol;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javax.lang.model.element.Modifier;
+
+@AutoService(BugChecker.class)
+@BugPattern(
+        name = "AtomicCounterContention",
+        link = "https://github.com/palantir/gradle-baseline#baseline-error-prone-checks",
+        linkType = BugPattern.LinkType.CUSTOM,
+        providesFix = BugPattern.ProvidesFix.REQUIRES_HUMAN_ATTENTION,
+        severity = SeverityLevel.SUGGESTION,
+        summary = "Atomic fields which are only incremented and read should be LongAdders, which avoid "
+                + "contention between threads updating the same counter.")
+public final class AtomicCounterContention extends BugChecker implements VariableTreeMatcher {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Matcher<VariableTree> ATOMIC_COUNTER_FIELD = Matchers.allOf(
+            Matchers.isField(),
+            Matchers.hasModifier(Modifier.PRIVATE),
+            Matchers.hasModifier(Modifier.FINAL),
+            Matchers.anyOf(
+                    Matchers.isSameType(AtomicLong.class.getName()),
+                    Matchers.isSameType(AtomicInteger.class.getName())));
+
+    /** Updates whose result is unused, and the equivalent {@link LongAdder} method. */
+    private static final ImmutableMap<String, String> UPDATES = ImmutableMap.<String, String>builder()
+            .put("incrementAndGet", "increment")
+            .put("getAndIncrement", "increment")
+            .put("decrementAndGet", "decrement")
+            .put("getAndDecrement", "decrement")
+            .put("addAndGet", "add")
+            .put("getAndAdd", "add")
+            .build();
+
+    /** Reads which {@link LongAdder} supports under the same name, as a {@link Number}. */
+    private static final ImmutableSet<String> NUMBER_READS =
+            ImmutableSet.of("intValue", "longValue", "floatValue", "doubleValue", "toString");
+
+    @Override
+    public Description matchVariable(VariableTree tree, VisitorState state) {
+        if (!ATOMIC_COUNTER_FIELD.matches(tree, state) || !isInitializedToZero(tree.getInitializer(), state)) {
+            return Description.NO_MATCH;
+        }
+        Symbol field = ASTHelpers.getSymbol(tree);
+        if (field == null) {
+            return Description.NO_MATCH;
+        }
+        boolean atomicInteger = ASTHelpers.isSameType(
+                field.type, state.getTypeFromString(AtomicInteger.class.getName()), state);
+        List<MethodInvocationTree> usages = new ArrayList<>();
+        boolean[] unsupportedUsage = {false};
+        // Private fields may only be referenced within the compilation unit
+        new TreePathScanner<Void, Void>() {
+            @Override
+            public Void visitIdentifier(IdentifierTree node, Void unused) {
+                checkReference(node);
+                return super.visitIdentifier(node, unused);
+            }
+
+            @Override
+            public Void visitMemberSelect(MemberSelectTree node, Void unused) {
+                checkReference(node);
+                return super.visitMemberSelect(node, unused);
+            }
+
+            private void checkReference(ExpressionTree reference) {
+                if (!field.equals(ASTHelpers.getSymbol(reference))) {
+                    return;
+                }
+                TreePath select = getCurrentPath().getParentPath();
+                TreePath invocation = select.getParentPath();
+                if (!(select.getLeaf() instanceof MemberSelectTree)
+                        || !(invocation.getLeaf() instanceof MethodInvocationTree)) {
+                    unsupportedUsage[0] = true;
+                    return;
+                }
+                String methodName = ((MemberSelectTree) select.getLeaf()).getIdentifier().toString();
+                boolean supported = UPDATES.containsKey(methodName)
+                        ? invocation.getParentPath().getLeaf() instanceof ExpressionStatementTree
+                        : methodName.equals("get") || NUMBER_READS.contains(methodName);
+                if (supported) {
+                    usages.add((MethodInvocationTree) invocation.getLeaf());
+                } else {
+                    unsupportedUsage[0] = true;
+                }
+            }
+        }.scan(state.getPath().getCompilationUnit(), null);
+
+        if (unsupportedUsage[0] || usages.stream().noneMatch(usage -> UPDATES.containsKey(methodName(usage)))) {
+            return Description.NO_MATCH;
+        }
+        SuggestedFix.Builder fix = SuggestedFix.builder();
+        String longAdder = MoreSuggestedFixes.qualifyType(state, fix, LongAdder.class.getName());
+        fix.replace(tree.getType(), longAdder).replace(tree.getInitializer(), "new " + longAdder + "()");
+        for (MethodInvocationTree usage : usages) {
+            String methodName = methodName(usage);
+            String receiver = state.getSourceForNode(ASTHelpers.getReceiver(usage));
+            if (UPDATES.containsKey(methodName)) {
+                String arguments = usage.getArguments().isEmpty()
+                        ? ""
+                        : state.getSourceForNode(usage.getArguments().get(0));
+                fix.replace(usage, receiver + "." + UPDATES.get(methodName) + "(" + arguments + ")");
+            } else if (methodName.equals("get")) {
+                // LongAdder.sum returns a long, AtomicInteger.get returns an int
+                fix.replace(usage, receiver + (atomicInteger ? ".intValue()" : ".sum()"));
+            }
+        }
+        return buildDescription(tree).addFix(fix.build()).build();
+    }
+
+    /** A {@link LongAdder} always starts from zero. */
+    private static boolean isInitializedToZero(ExpressionTree initializer, VisitorState state) {
+        if (!(initializer instanceof NewClassTree) || ((NewClassTree) initializer).getClassBody() != null) {
+            return false;
+        }
+        List<? extends ExpressionTree> arguments = ((NewClassTree) initializer).getArguments();
+        if (arguments.isEmpty()) {
+            return true;
+        }
+        Object initialValue = ASTHelpers.constValue(arguments.get(0));
+        return arguments.size() == 1
+                && initialValue instanceof Number
+                && ((Number) initialValue).longValue() == 0;
+    }
+
+    private static String methodName(MethodInvocationTree invocation) {
+        return ((MemberSelectTree) invocation.getMethodSelect()).getIdentifier().toString();
+    }
+}
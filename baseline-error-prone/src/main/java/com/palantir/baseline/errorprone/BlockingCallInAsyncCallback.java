@@ -0,0 +1,207 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.errorprone;
+
+import com.google.auto.service.AutoService;
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.BugPattern.SeverityLevel;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.Matchers;
+import com.google.errorprone.matchers.method.MethodMatchers;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.LambdaExpressionTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.TreePath;
+import com.sun.tools.javac.code.Symbol;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+
+@AutoService(BugChecker.class)
+@BugPattern(
+        name = "BlockingCallInAsyncCallback",
+        link = "https://github.com/palantir/gradle-baseline#baseline-error-prone-checks",
+        linkType = BugPattern.LinkType.CUSTOM,
+        severity = SeverityLevel.WARNING,
+        summary = "Blocking calls within future callbacks which run on the completing thread stall that thread, "
+                + "and every other callback waiting on it.")
+public final class BlockingCallInAsyncCallback extends BugChecker implements MethodInvocationTreeMatcher {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String STAGE_METHODS = "thenApply|thenAccept|thenRun|thenCompose|thenCombine"
+            + "|thenAcceptBoth|runAfterBoth|applyToEither|acceptEither|runAfterEither|whenComplete|handle";
+
+    /** Stages without an executor run on whichever thread completes the previous stage. */
+    private static final Matcher<ExpressionTree> COMPLETION_STAGE_CALLBACK = MethodMatchers.instanceMethod()
+            .onDescendantOf(CompletionStage.class.getName())
+            .withNameMatching(Pattern.compile("(" + STAGE_METHODS + ")(Async)?|exceptionally"));
+
+    private static final Matcher<ExpressionTree> GUAVA_CALLBACK = Matchers.anyOf(
+            MethodMatchers.staticMethod()
+                    .onClass("com.google.common.util.concurrent.Futures")
+                    .withNameMatching(Pattern.compile("transform|transformAsync|catching|catchingAsync|addCallback")),
+            MethodMatchers.instanceMethod()
+                    .onDescendantOf("com.google.common.util.concurrent.ListenableFuture")
+                    .withNameMatching(Pattern.compile(
+                            "transform|transformAsync|catching|catchingAsync|addCallback|addListener")));
+
+    /** Stages which only run once both the receiver and the other stage passed in have completed. */
+    private static final Matcher<ExpressionTree> BOTH_STAGE = MethodMatchers.instanceMethod()
+            .onDescendantOf(CompletionStage.class.getName())
+            .withNameMatching(Pattern.compile("(thenCombine|thenAcceptBoth|runAfterBoth)(Async)?"));
+
+    private static final Matcher<ExpressionTree> ANY_STAGE =
+            MethodMatchers.instanceMethod().onDescendantOf(CompletionStage.class.getName());
+
+    private static final Matcher<ExpressionTree> ALL_OF = MethodMatchers.staticMethod()
+            .onClass(CompletableFuture.class.getName())
+            .named("allOf");
+
+    private static final Matcher<ExpressionTree> FUTURE_RESULT = Matchers.anyOf(
+            MethodMatchers.instanceMethod().onDescendantOf(Future.class.getName()).named("get"),
+            MethodMatchers.instanceMethod().onDescendantOf(CompletableFuture.class.getName()).named("join"));
+
+    private static final Matcher<ExpressionTree> DIRECT_EXECUTOR = MethodMatchers.staticMethod()
+            .onClass("com.google.common.util.concurrent.MoreExecutors")
+            .named("directExecutor");
+
+    @Override
+    public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+        if (!BlockingMatchers.BLOCKING_INVOCATION.matches(tree, state)) {
+            return Description.NO_MATCH;
+        }
+        Optional<MethodInvocationTree> stage = enclosingCallbackStage(state);
+        if (!stage.isPresent() || readsCompletedFuture(tree, stage.get(), state)) {
+            return Description.NO_MATCH;
+        }
+        return buildDescription(tree)
+                .setMessage(String.format(
+                        "'%s' may block within a '%s' callback, which runs on the thread completing the future. "
+                                + "Compose with the future instead of blocking on it, or run blocking work on a "
+                                + "dedicated executor.",
+                        state.getSourceForNode(tree.getMethodSelect()),
+                        state.getSourceForNode(stage.get().getMethodSelect())))
+                .build();
+    }
+
+    /**
+     * The stage registering the nearest enclosing lambda or anonymous class, such as a Guava
+     * {@code FutureCallback}, if that stage may run it on the completing thread.
+     */
+    private static Optional<MethodInvocationTree> enclosingCallbackStage(VisitorState state) {
+        for (TreePath path = state.getPath(); path != null; path = path.getParentPath()) {
+            Tree leaf = path.getLeaf();
+            if (leaf instanceof LambdaExpressionTree) {
+                return registeringStage(path, state);
+            }
+            if (leaf instanceof ClassTree) {
+                TreePath parent = path.getParentPath();
+                return parent.getLeaf() instanceof NewClassTree ? registeringStage(parent, state) : Optional.empty();
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static Optional<MethodInvocationTree> registeringStage(TreePath callback, VisitorState state) {
+        Tree parent = callback.getParentPath().getLeaf();
+        if (parent instanceof MethodInvocationTree
+                && ((MethodInvocationTree) parent).getArguments().contains(callback.getLeaf())
+                && runsOnCompletingThread((MethodInvocationTree) parent, state)) {
+            return Optional.of((MethodInvocationTree) parent);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Results of futures which must have completed before the callback runs are available without blocking, for
+     * example {@code CompletableFuture.allOf(a, b).thenApply(v -> a.join() + b.join())}.
+     */
+    private static boolean readsCompletedFuture(
+            MethodInvocationTree tree, MethodInvocationTree stage, VisitorState state) {
+        if (!FUTURE_RESULT.matches(tree, state)) {
+            return false;
+        }
+        Optional<Symbol> future = variable(ASTHelpers.getReceiver(tree));
+        return future.isPresent() && completedBefore(stage, state).contains(future.get());
+    }
+
+    /** Variables holding futures which complete before callbacks registered by the given stage run. */
+    private static Set<Symbol> completedBefore(MethodInvocationTree stage, VisitorState state) {
+        Set<Symbol> completed = new HashSet<>();
+        if (GUAVA_CALLBACK.matches(stage, state) && ASTHelpers.getSymbol(stage).isStatic()) {
+            variable(stage.getArguments().get(0)).ifPresent(completed::add);
+            return completed;
+        }
+        ExpressionTree current = stage;
+        while (current instanceof MethodInvocationTree) {
+            MethodInvocationTree invocation = (MethodInvocationTree) current;
+            if (ALL_OF.matches(invocation, state)) {
+                invocation.getArguments().forEach(argument -> variable(argument).ifPresent(completed::add));
+                break;
+            }
+            if (BOTH_STAGE.matches(invocation, state)) {
+                variable(invocation.getArguments().get(0)).ifPresent(completed::add);
+            }
+            if (!ANY_STAGE.matches(invocation, state) && !GUAVA_CALLBACK.matches(invocation, state)) {
+                break;
+            }
+            ExpressionTree receiver = ASTHelpers.getReceiver(invocation);
+            variable(receiver).ifPresent(completed::add);
+            current = receiver == null ? null : ASTHelpers.stripParentheses(receiver);
+        }
+        return completed;
+    }
+
+    private static Optional<Symbol> variable(@Nullable ExpressionTree expression) {
+        if (expression == null) {
+            return Optional.empty();
+        }
+        ExpressionTree stripped = ASTHelpers.stripParentheses(expression);
+        if (!(stripped instanceof IdentifierTree) && !(stripped instanceof MemberSelectTree)) {
+            return Optional.empty();
+        }
+        Symbol symbol = ASTHelpers.getSymbol(stripped);
+        return symbol instanceof Symbol.VarSymbol ? Optional.of(symbol) : Optional.empty();
+    }
+
+    private static boolean runsOnCompletingThread(MethodInvocationTree stage, VisitorState state) {
+        boolean directExecutor = stage.getArguments().stream()
+                .anyMatch(argument -> DIRECT_EXECUTOR.matches(argument, state));
+        if (COMPLETION_STAGE_CALLBACK.matches(stage, state)) {
+            // Async stages without an executor are covered by DangerousCompletableFutureUsage
+            Symbol.MethodSymbol method = ASTHelpers.getSymbol(stage);
+            return !method.getSimpleName().toString().endsWith("Async") || directExecutor;
+        }
+        return GUAVA_CALLBACK.matches(stage, state) && directExecutor;
+    }
+}
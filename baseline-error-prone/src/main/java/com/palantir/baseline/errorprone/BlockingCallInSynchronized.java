@@ -0,0 +1,94 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.errorprone;
+
+import com.google.auto.service.AutoService;
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.BugPattern.SeverityLevel;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
+import com.google.errorprone.matchers.Description;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.LambdaExpressionTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.SynchronizedTree;
+import com.sun.source.tree.Tree;
+import java.util.Optional;
+import javax.lang.model.element.Modifier;
+
+@AutoService(BugChecker.class)
+@BugPattern(
+        name = "BlockingCallInSynchronized",
+        link = "https://github.com/palantir/gradle-baseline#baseline-error-prone-checks",
+        linkType = BugPattern.LinkType.CUSTOM,
+        severity = SeverityLevel.SUGGESTION,
+        summary = "Blocking calls within a synchronized block or method pin virtual threads to their carrier "
+                + "thread. Prefer a java.util.concurrent.locks.ReentrantLock.")
+public final class BlockingCallInSynchronized extends BugChecker implements MethodInvocationTreeMatcher {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+        if (!BlockingMatchers.BLOCKING_INVOCATION.matches(tree, state)) {
+            return Description.NO_MATCH;
+        }
+        Optional<String> region = synchronizedRegion(state);
+        if (!region.isPresent()) {
+            return Description.NO_MATCH;
+        }
+        if (BlockingMatchers.OBJECT_WAIT.matches(tree, state)) {
+            return buildDescription(tree)
+                    .setMessage(String.format(
+                            "'%s' within a %s pins virtual threads to their carrier thread while waiting. Migrate "
+                                    + "the monitor to a java.util.concurrent.locks.ReentrantLock, and wait on one of "
+                                    + "its Conditions instead.",
+                            state.getSourceForNode(tree.getMethodSelect()), region.get()))
+                    .build();
+        }
+        return buildDescription(tree)
+                .setMessage(String.format(
+                        "'%s' may block within a %s, which pins virtual threads to their carrier thread. Guard the "
+                                + "state with a java.util.concurrent.locks.ReentrantLock, and replace wait and notify "
+                                + "with a Condition, so that blocked virtual threads are unmounted.",
+                        state.getSourceForNode(tree.getMethodSelect()), region.get()))
+                .build();
+    }
+
+    /**
+     * Describes the synchronized region the current invocation executes in, if any. Lambdas and classes declared
+     * within a synchronized region are not executed while holding the monitor.
+     */
+    private static Optional<String> synchronizedRegion(VisitorState state) {
+        for (Tree enclosing : state.getPath()) {
+            if (enclosing instanceof SynchronizedTree) {
+                return Optional.of("synchronized block");
+            }
+            if (enclosing instanceof MethodTree) {
+                return ((MethodTree) enclosing).getModifiers().getFlags().contains(Modifier.SYNCHRONIZED)
+                        ? Optional.of("synchronized method")
+                        : Optional.empty();
+            }
+            if (enclosing instanceof LambdaExpressionTree || enclosing instanceof ClassTree) {
+                return Optional.empty();
+            }
+        }
+        return Optional.empty();
+    }
+}
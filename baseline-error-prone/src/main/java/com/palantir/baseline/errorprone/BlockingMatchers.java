@@ -0,0 +1,108 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.errorprone;
+
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.Matchers;
+import com.google.errorprone.matchers.method.MethodMatchers;
+import com.sun.source.tree.ExpressionTree;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.CharArrayReader;
+import java.io.CharArrayWriter;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Pattern;
+
+/** Matchers for common JDK and Guava methods which block the calling thread. */
+final class BlockingMatchers {
+
+    /** Streams backed by an array or string never block. */
+    private static final Matcher<ExpressionTree> IN_MEMORY_IO = MethodMatchers.instanceMethod()
+            .onDescendantOfAny(
+                    ByteArrayInputStream.class.getName(),
+                    ByteArrayOutputStream.class.getName(),
+                    CharArrayReader.class.getName(),
+                    CharArrayWriter.class.getName(),
+                    StringReader.class.getName(),
+                    StringWriter.class.getName());
+
+    private static final Matcher<ExpressionTree> STREAM_IO = Matchers.allOf(
+            Matchers.anyOf(
+                    MethodMatchers.instanceMethod()
+                            .onDescendantOfAny(InputStream.class.getName(), Reader.class.getName())
+                            .withNameMatching(Pattern.compile("read.*|skip|transferTo")),
+                    MethodMatchers.instanceMethod()
+                            .onDescendantOfAny(OutputStream.class.getName(), Writer.class.getName())
+                            .withNameMatching(Pattern.compile("write|flush"))),
+            Matchers.not(IN_MEMORY_IO));
+
+    private static final Matcher<ExpressionTree> SOCKET_IO = Matchers.anyOf(
+            MethodMatchers.instanceMethod().onDescendantOf("java.net.Socket").named("connect"),
+            MethodMatchers.instanceMethod().onDescendantOf("java.net.ServerSocket").named("accept"),
+            MethodMatchers.instanceMethod()
+                    .onDescendantOf("java.net.DatagramSocket")
+                    .withNameMatching(Pattern.compile("send|receive")));
+
+    private static final Matcher<ExpressionTree> JDBC = Matchers.anyOf(
+            MethodMatchers.instanceMethod()
+                    .onDescendantOf("java.sql.Statement")
+                    .withNameMatching(Pattern.compile("execute.*")),
+            MethodMatchers.instanceMethod()
+                    .onDescendantOf("java.sql.Connection")
+                    .withNameMatching(Pattern.compile("commit|rollback")),
+            MethodMatchers.instanceMethod().onDescendantOf("java.sql.ResultSet").named("next"),
+            MethodMatchers.instanceMethod().onDescendantOf("javax.sql.DataSource").named("getConnection"),
+            MethodMatchers.staticMethod().onClass("java.sql.DriverManager").named("getConnection"));
+
+    /** {@link Object#wait()} releases the monitor it is called on, but still blocks the calling thread. */
+    static final Matcher<ExpressionTree> OBJECT_WAIT =
+            MethodMatchers.instanceMethod().onExactClass(Object.class.getName()).named("wait");
+
+    private static final Matcher<ExpressionTree> THREAD = Matchers.anyOf(
+            MethodMatchers.staticMethod().onClass(Thread.class.getName()).named("sleep"),
+            MethodMatchers.instanceMethod().onDescendantOf(Thread.class.getName()).named("join"),
+            OBJECT_WAIT);
+
+    private static final Matcher<ExpressionTree> CONCURRENCY = Matchers.anyOf(
+            MethodMatchers.instanceMethod().onDescendantOf(Future.class.getName()).named("get"),
+            MethodMatchers.instanceMethod().onDescendantOf(CompletableFuture.class.getName()).named("join"),
+            MethodMatchers.instanceMethod()
+                    .onDescendantOf(BlockingQueue.class.getName())
+                    .withNameMatching(Pattern.compile("take|put")),
+            MethodMatchers.instanceMethod()
+                    .onDescendantOfAny(CountDownLatch.class.getName(), CyclicBarrier.class.getName())
+                    .named("await"),
+            MethodMatchers.instanceMethod().onDescendantOf(Semaphore.class.getName()).named("acquire"),
+            MethodMatchers.staticMethod().onClass("com.google.common.util.concurrent.Uninterruptibles"));
+
+    /** Invocations of methods which may block the calling thread on I/O, or on another thread. */
+    static final Matcher<ExpressionTree> BLOCKING_INVOCATION =
+            Matchers.anyOf(STREAM_IO, SOCKET_IO, JDBC, THREAD, CONCURRENCY);
+
+    private BlockingMatchers() {}
+}
@@ -0,0 +1,433 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.errorprone;
+
+import com.google.auto.service.AutoService;
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
+import com.google.errorprone.fixes.SuggestedFix;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.method.MethodMatchers;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.BinaryTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.LambdaExpressionTree;
+import com.sun.source.tree.LiteralTree;
+import com.sun.source.tree.MemberReferenceTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.TreePath;
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.code.Type;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+@AutoService(BugChecker.class)
+@BugPattern(
+        name = "BoxedPrimitiveStream",
+        link = "https://github.com/palantir/gradle-baseline#baseline-error-prone-checks",
+        linkType = BugPattern.LinkType.CUSTOM,
+        providesFix = BugPattern.ProvidesFix.REQUIRES_HUMAN_ATTENTION,
+        severity = BugPattern.SeverityLevel.SUGGESTION,
+        summary = "Aggregating a stream of boxed numbers allocates a wrapper per element, prefer the primitive "
+                + "specialized IntStream, LongStream and DoubleStream.")
+public final class BoxedPrimitiveStream extends BugChecker implements MethodInvocationTreeMatcher {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String STREAM = "java.util.stream.Stream";
+
+    private static final Matcher<ExpressionTree> REDUCE = MethodMatchers.instanceMethod()
+            .onDescendantOf(STREAM)
+            .named("reduce")
+            .withParameters("java.lang.Object", "java.util.function.BinaryOperator");
+
+    private static final Matcher<ExpressionTree> COLLECT = MethodMatchers.instanceMethod()
+            .onDescendantOf(STREAM)
+            .named("collect")
+            .withParameters("java.util.stream.Collector");
+
+    private static final Matcher<ExpressionTree> SUMMING = MethodMatchers.staticMethod()
+            .onClass("java.util.stream.Collectors")
+            .withNameMatching(Pattern.compile("summing(Int|Long|Double)"));
+
+    private static final Matcher<ExpressionTree> MIN_MAX = MethodMatchers.instanceMethod()
+            .onDescendantOf(STREAM)
+            .withNameMatching(Pattern.compile("min|max"))
+            .withParameters("java.util.Comparator");
+
+    private static final Matcher<ExpressionTree> NATURAL_ORDER = MethodMatchers.staticMethod()
+            .onClass("java.util.Comparator")
+            .named("naturalOrder")
+            .withParameters();
+
+    private static final Matcher<ExpressionTree> MAP = MethodMatchers.instanceMethod()
+            .onDescendantOf(STREAM)
+            .named("map");
+
+    private static final Matcher<ExpressionTree> MAP_TO_PRIMITIVE = MethodMatchers.instanceMethod()
+            .onDescendantOf(STREAM)
+            .withNameMatching(Pattern.compile("mapTo(Int|Long|Double)"));
+
+    private enum Primitive {
+        INT("Integer", "int", "Int"),
+        LONG("Long", "long", "Long"),
+        DOUBLE("Double", "double", "Double");
+
+        private final String boxedName;
+        private final String keyword;
+        private final String capitalized;
+
+        Primitive(String boxedName, String keyword, String capitalized) {
+            this.boxedName = boxedName;
+            this.keyword = keyword;
+            this.capitalized = capitalized;
+        }
+
+        String boxedType() {
+            return "java.lang." + boxedName;
+        }
+
+        String streamType() {
+            return "java.util.stream." + capitalized + "Stream";
+        }
+
+        String mapTo() {
+            return "mapTo" + capitalized;
+        }
+
+        String unboxReference() {
+            return boxedName + "::" + keyword + "Value";
+        }
+
+        static Optional<Primitive> fromSuffix(String name) {
+            return Arrays.stream(values())
+                    .filter(primitive -> name.endsWith(primitive.capitalized))
+                    .findFirst();
+        }
+    }
+
+    @Override
+    public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+        ExpressionTree stream = ASTHelpers.getReceiver(tree);
+        if (stream == null) {
+            return Description.NO_MATCH;
+        }
+        if (REDUCE.matches(tree, state)) {
+            return matchReduce(tree, stream, state);
+        }
+        if (COLLECT.matches(tree, state)) {
+            return matchSumming(tree, state);
+        }
+        if (MIN_MAX.matches(tree, state)) {
+            return matchMinMax(tree, stream, state);
+        }
+        if (MAP_TO_PRIMITIVE.matches(tree, state)) {
+            return matchBoxedThenUnboxed(tree, stream, state);
+        }
+        return Description.NO_MATCH;
+    }
+
+    /** Matches {@code stream.reduce(0, Integer::sum)} and {@code stream.reduce(0, (a, b) -> a + b)}. */
+    private Description matchReduce(MethodInvocationTree tree, ExpressionTree stream, VisitorState state) {
+        Optional<Primitive> primitive = elementType(stream, state);
+        List<? extends ExpressionTree> arguments = tree.getArguments();
+        if (!primitive.isPresent()
+                || !isZero(arguments.get(0))
+                || !isSum(arguments.get(1), primitive.get())) {
+            return Description.NO_MATCH;
+        }
+        return buildDescription(tree)
+                .setMessage(String.format(
+                        "Summing a Stream<%s> with reduce allocates a wrapper per element, use %s(...).sum() instead",
+                        primitive.get().boxedName,
+                        primitive.get().mapTo()))
+                .addFix(isReceiver(state)
+                        ? Optional.empty()
+                        : toPrimitiveStream(tree, stream, primitive.get(), "sum()", state))
+                .build();
+    }
+
+    /** Matches {@code stream.collect(Collectors.summingInt(function))}. */
+    private Description matchSumming(MethodInvocationTree tree, VisitorState state) {
+        ExpressionTree collector = tree.getArguments().get(0);
+        if (!SUMMING.matches(collector, state)) {
+            return Description.NO_MATCH;
+        }
+        MethodInvocationTree summing = (MethodInvocationTree) collector;
+        Optional<Primitive> primitive =
+                Primitive.fromSuffix(ASTHelpers.getSymbol(summing).getSimpleName().toString());
+        if (!primitive.isPresent()) {
+            return Description.NO_MATCH;
+        }
+        String replacement = primitive.get().mapTo() + "("
+                + state.getSourceForNode(summing.getArguments().get(0)) + ").sum()";
+        Optional<SuggestedFix> fix = Optional.empty();
+        if (!isReceiver(state) && tree.getTypeArguments().isEmpty()) {
+            SuggestedFix.Builder builder = SuggestedFix.builder();
+            replaceNameAndArguments(tree, replacement, builder, state);
+            fix = Optional.of(builder.build());
+        }
+        return buildDescription(tree)
+                .setMessage(String.format(
+                        "collect(%s(...)) boxes its result, use %s(...).sum() instead",
+                        ASTHelpers.getSymbol(summing).getSimpleName(),
+                        primitive.get().mapTo()))
+                .addFix(fix)
+                .build();
+    }
+
+    /**
+     * Matches {@code stream.max(Comparator.naturalOrder())} over boxed numbers. Primitive streams return
+     * {@code OptionalInt} rather than {@code Optional<Integer>}, so a fix is only suggested when the result is
+     * immediately unwrapped. {@link java.util.stream.DoubleStream#min()} returns NaN if any element is NaN, whereas
+     * {@link Double#compare} orders NaN above every other value, so the minimum of doubles is never rewritten.
+     */
+    private Description matchMinMax(MethodInvocationTree tree, ExpressionTree stream, VisitorState state) {
+        Optional<Primitive> primitive = elementType(stream, state);
+        if (!primitive.isPresent() || !isNaturalOrder(tree.getArguments().get(0), primitive.get(), state)) {
+            return Description.NO_MATCH;
+        }
+        String name = ASTHelpers.getSymbol(tree).getSimpleName().toString();
+        boolean nanSensitive = primitive.get() == Primitive.DOUBLE && name.equals("min");
+        Optional<MethodInvocationTree> unwrap = unwrappingInvocation(state);
+        Optional<SuggestedFix> fix = unwrap.isPresent() && !nanSensitive
+                ? toPrimitiveStream(tree, stream, primitive.get(), name + "()", state)
+                : Optional.empty();
+        if (fix.isPresent() && ASTHelpers.getSymbol(unwrap.get()).getSimpleName().contentEquals("get")) {
+            fix = Optional.of(SuggestedFix.builder()
+                    .merge(fix.get())
+                    .merge(MoreSuggestedFixes.renameMethodInvocation(
+                            unwrap.get(), "getAs" + primitive.get().capitalized, state))
+                    .build());
+        }
+        return buildDescription(tree)
+                .setMessage(String.format(
+                        "Stream<%s>.%s compares boxed values, use %s(...).%s() instead%s",
+                        primitive.get().boxedName,
+                        name,
+                        primitive.get().mapTo(),
+                        name,
+                        nanSensitive ? ", which returns NaN rather than ignoring it if any element is NaN" : ""))
+                .addFix(fix)
+                .build();
+    }
+
+    /** Matches {@code intStream.boxed().mapToInt(Integer::intValue)}, which boxes and unboxes every element. */
+    private Description matchBoxedThenUnboxed(MethodInvocationTree tree, ExpressionTree stream, VisitorState state) {
+        Optional<Primitive> primitive =
+                Primitive.fromSuffix(ASTHelpers.getSymbol(tree).getSimpleName().toString());
+        if (!primitive.isPresent()
+                || !(stream instanceof MethodInvocationTree)
+                || !isBoxing((MethodInvocationTree) stream, primitive.get(), state)
+                || !isUnboxing(tree.getArguments().get(0), primitive.get())) {
+            return Description.NO_MATCH;
+        }
+        ExpressionTree primitiveStream = ASTHelpers.getReceiver(stream);
+        SuggestedFix fix =
+                SuggestedFix.replace(state.getEndPosition(primitiveStream), state.getEndPosition(tree), "");
+        return buildDescription(tree)
+                .setMessage(String.format(
+                        "Boxing a %sStream and unboxing it again allocates a wrapper per element, "
+                                + "use the %sStream directly",
+                        primitive.get().capitalized,
+                        primitive.get().capitalized))
+                .addFix(fix)
+                .build();
+    }
+
+    /**
+     * Converts the boxed {@code stream} into a primitive stream, and replaces the terminal operation invoked on it
+     * with {@code replacement}. A preceding {@code map} is replaced by {@code mapToInt}, a preceding {@code boxed()}
+     * is removed, otherwise the elements are unboxed with {@code mapToInt(Integer::intValue)}.
+     */
+    private static Optional<SuggestedFix> toPrimitiveStream(
+            MethodInvocationTree terminal,
+            ExpressionTree stream,
+            Primitive primitive,
+            String replacement,
+            VisitorState state) {
+        if (!terminal.getTypeArguments().isEmpty()) {
+            return Optional.empty();
+        }
+        SuggestedFix.Builder fix = SuggestedFix.builder();
+        if (stream instanceof MethodInvocationTree
+                && MAP.matches(stream, state)
+                && ((MethodInvocationTree) stream).getTypeArguments().isEmpty()) {
+            fix.merge(MoreSuggestedFixes.renameMethodInvocation(
+                    (MethodInvocationTree) stream, primitive.mapTo(), state));
+        } else if (stream instanceof MethodInvocationTree
+                && isBoxing((MethodInvocationTree) stream, primitive, state)) {
+            removeInvocation((MethodInvocationTree) stream, fix, state);
+        } else {
+            fix.postfixWith(stream, "." + primitive.mapTo() + "(" + primitive.unboxReference() + ")");
+        }
+        replaceNameAndArguments(terminal, replacement, fix, state);
+        return Optional.of(fix.build());
+    }
+
+    /** Replaces {@code name(arguments)} of an invocation, retaining its receiver. */
+    private static void replaceNameAndArguments(
+            MethodInvocationTree invocation, String replacement, SuggestedFix.Builder fix, VisitorState state) {
+        int nameEnd = state.getEndPosition(invocation.getMethodSelect());
+        int nameStart = nameEnd - ASTHelpers.getSymbol(invocation).getSimpleName().length();
+        fix.replace(nameStart, state.getEndPosition(invocation), replacement);
+    }
+
+    /** Removes {@code .name(arguments)} from an invocation, leaving only its receiver. */
+    private static void removeInvocation(
+            MethodInvocationTree invocation, SuggestedFix.Builder fix, VisitorState state) {
+        ExpressionTree receiver = ASTHelpers.getReceiver(invocation);
+        fix.replace(state.getEndPosition(receiver), state.getEndPosition(invocation), "");
+    }
+
+    /** The type of elements in the stream, if it is a boxed number. */
+    private static Optional<Primitive> elementType(ExpressionTree stream, VisitorState state) {
+        Type type = ASTHelpers.getType(stream);
+        Symbol streamSymbol = state.getSymbolFromString(STREAM);
+        if (type == null || streamSymbol == null) {
+            return Optional.empty();
+        }
+        Type streamType = state.getTypes().asSuper(type, streamSymbol);
+        if (streamType == null || streamType.getTypeArguments().isEmpty()) {
+            return Optional.empty();
+        }
+        Type elementType = streamType.getTypeArguments().get(0);
+        return Arrays.stream(Primitive.values())
+                .filter(primitive -> ASTHelpers.isSameType(
+                        elementType, state.getTypeFromString(primitive.boxedType()), state))
+                .findFirst();
+    }
+
+    /** Matches {@code intStream.boxed()} and {@code intStream.mapToObj(Integer::valueOf)}. */
+    private static boolean isBoxing(MethodInvocationTree invocation, Primitive primitive, VisitorState state) {
+        Symbol symbol = ASTHelpers.getSymbol(invocation);
+        if (symbol == null
+                || ASTHelpers.getReceiver(invocation) == null
+                || !invocation.getTypeArguments().isEmpty()
+                || !symbol.owner.getQualifiedName().contentEquals(primitive.streamType())) {
+            return false;
+        }
+        if (symbol.getSimpleName().contentEquals("boxed")) {
+            return true;
+        }
+        return symbol.getSimpleName().contentEquals("mapToObj")
+                && isReferenceTo(invocation.getArguments().get(0), primitive.boxedType(), "valueOf");
+    }
+
+    private static boolean isUnboxing(ExpressionTree function, Primitive primitive) {
+        return isReferenceTo(function, primitive.boxedType(), primitive.keyword + "Value")
+                || isIdentityLambda(function);
+    }
+
+    private static boolean isNaturalOrder(ExpressionTree comparator, Primitive primitive, VisitorState state) {
+        return NATURAL_ORDER.matches(comparator, state)
+                || isReferenceTo(comparator, primitive.boxedType(), "compare")
+                || isReferenceTo(comparator, primitive.boxedType(), "compareTo");
+    }
+
+    /** Matches {@code Integer::sum} and {@code (a, b) -> a + b}. */
+    private static boolean isSum(ExpressionTree operator, Primitive primitive) {
+        if (isReferenceTo(operator, primitive.boxedType(), "sum")) {
+            return true;
+        }
+        if (!(operator instanceof LambdaExpressionTree)) {
+            return false;
+        }
+        LambdaExpressionTree lambda = (LambdaExpressionTree) operator;
+        if (lambda.getParameters().size() != 2 || lambda.getBody().getKind() != Tree.Kind.PLUS) {
+            return false;
+        }
+        BinaryTree sum = (BinaryTree) lambda.getBody();
+        Symbol left = ASTHelpers.getSymbol(sum.getLeftOperand());
+        Symbol right = ASTHelpers.getSymbol(sum.getRightOperand());
+        Symbol first = ASTHelpers.getSymbol(lambda.getParameters().get(0));
+        Symbol second = ASTHelpers.getSymbol(lambda.getParameters().get(1));
+        return sum.getLeftOperand() instanceof IdentifierTree
+                && sum.getRightOperand() instanceof IdentifierTree
+                && left != null
+                && right != null
+                && ((left.equals(first) && right.equals(second)) || (left.equals(second) && right.equals(first)));
+    }
+
+    private static boolean isIdentityLambda(ExpressionTree function) {
+        if (!(function instanceof LambdaExpressionTree)) {
+            return false;
+        }
+        LambdaExpressionTree lambda = (LambdaExpressionTree) function;
+        Symbol body = ASTHelpers.getSymbol(lambda.getBody());
+        return lambda.getParameters().size() == 1
+                && lambda.getBody() instanceof IdentifierTree
+                && body != null
+                && body.equals(ASTHelpers.getSymbol(lambda.getParameters().get(0)));
+    }
+
+    private static boolean isReferenceTo(ExpressionTree tree, String owner, String name) {
+        if (!(tree instanceof MemberReferenceTree)) {
+            return false;
+        }
+        Symbol symbol = ASTHelpers.getSymbol(tree);
+        return symbol != null
+                && symbol.getSimpleName().contentEquals(name)
+                && symbol.owner.getQualifiedName().contentEquals(owner);
+    }
+
+    private static boolean isZero(ExpressionTree tree) {
+        if (!(tree instanceof LiteralTree)) {
+            return false;
+        }
+        Object value = ((LiteralTree) tree).getValue();
+        return value instanceof Number && ((Number) value).doubleValue() == 0;
+    }
+
+    /**
+     * The invocation immediately unwrapping the optional result of the current invocation, if it exists with the same
+     * meaning on {@code OptionalInt}, {@code OptionalLong} and {@code OptionalDouble}.
+     */
+    private static Optional<MethodInvocationTree> unwrappingInvocation(VisitorState state) {
+        TreePath select = state.getPath().getParentPath();
+        if (!(select.getLeaf() instanceof MemberSelectTree)
+                || !(select.getParentPath().getLeaf() instanceof MethodInvocationTree)) {
+            return Optional.empty();
+        }
+        MethodInvocationTree unwrap = (MethodInvocationTree) select.getParentPath().getLeaf();
+        switch (((MemberSelectTree) select.getLeaf()).getIdentifier().toString()) {
+            case "get":
+            case "isPresent":
+            case "orElseThrow":
+                return Optional.of(unwrap);
+            case "orElse":
+                // A boxed default may be null, which primitive optionals cannot return
+                Type defaultType = ASTHelpers.getType(unwrap.getArguments().get(0));
+                return defaultType != null && defaultType.isPrimitive() ? Optional.of(unwrap) : Optional.empty();
+            default:
+                return Optional.empty();
+        }
+    }
+
+    /** Whether the current invocation is the receiver of another method, which may not exist on its new type. */
+    private static boolean isReceiver(VisitorState state) {
+        return state.getPath().getParentPath().getLeaf() instanceof MemberSelectTree;
+    }
+}
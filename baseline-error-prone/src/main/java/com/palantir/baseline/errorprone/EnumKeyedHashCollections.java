@@ -0,0 +1,282 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.errorprone;
+
+import com.google.auto.service.AutoService;
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.bugpatterns.BugChecker.VariableTreeMatcher;
+import com.google.errorprone.fixes.SuggestedFix;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.Matchers;
+import com.google.errorprone.matchers.method.MethodMatchers;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.VariableTree;
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.code.Type;
+import com.sun.tools.javac.code.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+
+@AutoService(BugChecker.class)
+@BugPattern(
+        name = "EnumKeyedHashCollections",
+        link = "https://github.com/palantir/gradle-baseline#baseline-error-prone-checks",
+        linkType = BugPattern.LinkType.CUSTOM,
+        providesFix = BugPattern.ProvidesFix.REQUIRES_HUMAN_ATTENTION,
+        severity = BugPattern.SeverityLevel.SUGGESTION,
+        summary = "Maps keyed by an enum and sets of enums should use EnumMap and EnumSet, which are backed by arrays "
+                + "indexed by ordinal rather than hash tables.")
+public final class EnumKeyedHashCollections extends BugChecker implements VariableTreeMatcher {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Matcher<ExpressionTree> EMPTY_HASH_MAP = Matchers.anyOf(
+            MethodMatchers.constructor().forClass("java.util.HashMap").withParameters(),
+            MethodMatchers.constructor().forClass("java.util.HashMap").withParameters("int"),
+            MethodMatchers.staticMethod()
+                    .onClass("com.google.common.collect.Maps")
+                    .named("newHashMap")
+                    .withParameters(),
+            MethodMatchers.staticMethod()
+                    .onClass("com.google.common.collect.Maps")
+                    .named("newHashMapWithExpectedSize")
+                    .withParameters("int"));
+
+    private static final Matcher<ExpressionTree> EMPTY_HASH_SET = Matchers.anyOf(
+            MethodMatchers.constructor().forClass("java.util.HashSet").withParameters(),
+            MethodMatchers.constructor().forClass("java.util.HashSet").withParameters("int"),
+            MethodMatchers.staticMethod()
+                    .onClass("com.google.common.collect.Sets")
+                    .named("newHashSet")
+                    .withParameters(),
+            MethodMatchers.staticMethod()
+                    .onClass("com.google.common.collect.Sets")
+                    .named("newHashSetWithExpectedSize")
+                    .withParameters("int"));
+
+    // EnumMap and EnumSet copies fail on empty inputs which aren't already enum collections
+    private static final Matcher<ExpressionTree> COPIED_HASH_COLLECTION = Matchers.anyOf(
+            MethodMatchers.constructor().forClass("java.util.HashMap").withParameters("java.util.Map"),
+            MethodMatchers.constructor().forClass("java.util.HashSet").withParameters("java.util.Collection"),
+            MethodMatchers.staticMethod()
+                    .onClass("com.google.common.collect.Maps")
+                    .named("newHashMap")
+                    .withParameters("java.util.Map"),
+            MethodMatchers.staticMethod().onClass("com.google.common.collect.Sets").named("newHashSet"));
+
+    private static final Matcher<ExpressionTree> IMMUTABLE_MAP = MethodMatchers.staticMethod()
+            .onClass("com.google.common.collect.ImmutableMap")
+            .withNameMatching(Pattern.compile("of|copyOf"));
+
+    private static final Matcher<ExpressionTree> IMMUTABLE_SET_OF = MethodMatchers.staticMethod()
+            .onClass("com.google.common.collect.ImmutableSet")
+            .named("of");
+
+    private static final Matcher<ExpressionTree> IMMUTABLE_SET_COPY_OF = Matchers.anyOf(
+            MethodMatchers.staticMethod()
+                    .onClass("com.google.common.collect.ImmutableSet")
+                    .named("copyOf")
+                    .withParameters("java.lang.Iterable"),
+            MethodMatchers.staticMethod()
+                    .onClass("com.google.common.collect.ImmutableSet")
+                    .named("copyOf")
+                    .withParameters("java.util.Collection"));
+
+    @Override
+    public Description matchVariable(VariableTree tree, VisitorState state) {
+        ExpressionTree initializer = tree.getInitializer();
+        Symbol symbol = ASTHelpers.getSymbol(tree);
+        if (initializer == null
+                || symbol == null
+                || (initializer instanceof NewClassTree && ((NewClassTree) initializer).getClassBody() != null)) {
+            return Description.NO_MATCH;
+        }
+        boolean map = EMPTY_HASH_MAP.matches(initializer, state)
+                || IMMUTABLE_MAP.matches(initializer, state)
+                || (COPIED_HASH_COLLECTION.matches(initializer, state) && isMap(initializer, state));
+        boolean set = !map
+                && (EMPTY_HASH_SET.matches(initializer, state)
+                        || IMMUTABLE_SET_OF.matches(initializer, state)
+                        || IMMUTABLE_SET_COPY_OF.matches(initializer, state)
+                        || COPIED_HASH_COLLECTION.matches(initializer, state));
+        if ((!map && !set) || isEmptyImmutableCollection(initializer, state)) {
+            return Description.NO_MATCH;
+        }
+        Optional<Type> enumType = enumKeyType(initializer, map ? "java.util.Map" : "java.util.Set", state);
+        if (!enumType.isPresent()) {
+            return Description.NO_MATCH;
+        }
+        String replacement = replacementName(initializer, map, state);
+        boolean immutable = replacement.startsWith("Maps.") || replacement.startsWith("Sets.");
+        return buildDescription(initializer)
+                .setMessage(String.format(
+                        "%s enum %s should use %s, which is backed by an array indexed by ordinal. Note that it %s",
+                        map ? "Map keyed by" : "Set of",
+                        enumType.get().tsym.getSimpleName(),
+                        replacement,
+                        immutable
+                                ? "iterates in ordinal order rather than the order elements were added"
+                                : "throws a NullPointerException when given a null " + (map ? "key" : "element")))
+                .addFix(isFixable(tree, symbol, replacement, state)
+                        ? replace(initializer, enumType.get(), map, state)
+                        : Optional.empty())
+                .build();
+    }
+
+    private static String replacementName(ExpressionTree initializer, boolean map, VisitorState state) {
+        if (IMMUTABLE_MAP.matches(initializer, state)) {
+            return "Maps.immutableEnumMap";
+        }
+        if (IMMUTABLE_SET_OF.matches(initializer, state) || IMMUTABLE_SET_COPY_OF.matches(initializer, state)) {
+            return "Sets.immutableEnumSet";
+        }
+        return map ? "EnumMap" : "EnumSet";
+    }
+
+    /** The key type of a map, or element type of a set, if it is an enum. */
+    private static Optional<Type> enumKeyType(ExpressionTree initializer, String collectionType, VisitorState state) {
+        Type type = ASTHelpers.getType(initializer);
+        if (type == null) {
+            return Optional.empty();
+        }
+        Types types = state.getTypes();
+        Type collection = types.asSuper(type, state.getSymbolFromString(collectionType));
+        if (collection == null || collection.getTypeArguments().isEmpty()) {
+            return Optional.empty();
+        }
+        Type key = collection.getTypeArguments().get(0);
+        return key.tsym != null && key.tsym.getKind() == ElementKind.ENUM
+                ? Optional.of(key)
+                : Optional.empty();
+    }
+
+    /**
+     * Immutable enum collections iterate in ordinal order, so only collections of enum constants which are already
+     * listed in that order keep their iteration order.
+     */
+    private static boolean isInOrdinalOrder(List<? extends ExpressionTree> elements) {
+        int previous = -1;
+        for (ExpressionTree element : elements) {
+            Symbol symbol = ASTHelpers.getSymbol(element);
+            if (symbol == null || symbol.getKind() != ElementKind.ENUM_CONSTANT) {
+                return false;
+            }
+            int ordinal = symbol.owner.getEnclosedElements().stream()
+                    .filter(member -> member.getKind() == ElementKind.ENUM_CONSTANT)
+                    .collect(Collectors.toList())
+                    .indexOf(symbol);
+            if (ordinal < previous) {
+                return false;
+            }
+            previous = ordinal;
+        }
+        return true;
+    }
+
+    /**
+     * Only local variables and private fields are rewritten, since other code may rely on the null keys supported by
+     * hash based collections. The declared type must also accept the replacement.
+     */
+    private static boolean isFixable(VariableTree tree, Symbol symbol, String replacement, VisitorState state) {
+        boolean local = symbol.getKind() == ElementKind.LOCAL_VARIABLE;
+        boolean privateField = symbol.getKind() == ElementKind.FIELD
+                && tree.getModifiers().getFlags().contains(Modifier.PRIVATE);
+        if (!local && !privateField) {
+            return false;
+        }
+        if (replacement.startsWith("Maps.") || replacement.startsWith("Sets.")) {
+            // Immutable replacements return the same ImmutableMap and ImmutableSet types
+            return true;
+        }
+        Types types = state.getTypes();
+        Type replacementType = state.getTypeFromString("java.util." + replacement);
+        Type declaredType = ASTHelpers.getType(tree.getType());
+        return replacementType != null
+                && declaredType != null
+                && types.isSubtype(types.erasure(replacementType), types.erasure(declaredType));
+    }
+
+    private static Optional<SuggestedFix> replace(
+            ExpressionTree initializer, Type enumType, boolean map, VisitorState state) {
+        SuggestedFix.Builder fix = SuggestedFix.builder();
+        if (EMPTY_HASH_MAP.matches(initializer, state)) {
+            String enumMap = MoreSuggestedFixes.qualifyType(state, fix, "java.util.EnumMap");
+            String enumClass = MoreSuggestedFixes.prettyType(state, fix, enumType) + ".class";
+            return Optional.of(fix.replace(initializer, "new " + enumMap + "<>(" + enumClass + ")").build());
+        }
+        if (EMPTY_HASH_SET.matches(initializer, state)) {
+            String enumSet = MoreSuggestedFixes.qualifyType(state, fix, "java.util.EnumSet");
+            String enumClass = MoreSuggestedFixes.prettyType(state, fix, enumType) + ".class";
+            return Optional.of(fix.replace(initializer, enumSet + ".noneOf(" + enumClass + ")").build());
+        }
+        if (!(initializer instanceof MethodInvocationTree)) {
+            return Optional.empty();
+        }
+        // Copies may be in any order, so only collections of constants are rewritten
+        List<? extends ExpressionTree> arguments = ((MethodInvocationTree) initializer).getArguments();
+        boolean copyOf = ASTHelpers.getSymbol(initializer).getSimpleName().contentEquals("copyOf");
+        if (copyOf) {
+            return Optional.empty();
+        }
+        if (map && IMMUTABLE_MAP.matches(initializer, state)) {
+            List<ExpressionTree> keys = new ArrayList<>();
+            for (int i = 0; i < arguments.size(); i += 2) {
+                keys.add(arguments.get(i));
+            }
+            if (!isInOrdinalOrder(keys)) {
+                return Optional.empty();
+            }
+            String maps = MoreSuggestedFixes.qualifyType(state, fix, "com.google.common.collect.Maps");
+            String copied = state.getSourceForNode(initializer);
+            return Optional.of(fix.replace(initializer, maps + ".immutableEnumMap(" + copied + ")").build());
+        }
+        if (!map && IMMUTABLE_SET_OF.matches(initializer, state)) {
+            if (!isInOrdinalOrder(arguments)) {
+                return Optional.empty();
+            }
+            String sets = MoreSuggestedFixes.qualifyType(state, fix, "com.google.common.collect.Sets");
+            String elements = arguments.stream().map(state::getSourceForNode).collect(Collectors.joining(", "));
+            return Optional.of(fix.replace(initializer, sets + ".immutableEnumSet(" + elements + ")").build());
+        }
+        return Optional.empty();
+    }
+
+    /** Empty immutable collections are shared singletons, so there is nothing to gain. */
+    private static boolean isEmptyImmutableCollection(ExpressionTree initializer, VisitorState state) {
+        return (IMMUTABLE_MAP.matches(initializer, state) || IMMUTABLE_SET_OF.matches(initializer, state))
+                && ((MethodInvocationTree) initializer).getArguments().isEmpty();
+    }
+
+    private static boolean isMap(ExpressionTree tree, VisitorState state) {
+        Type type = ASTHelpers.getType(tree);
+        Type mapType = state.getTypeFromString("java.util.Map");
+        return type != null
+                && mapType != null
+                && state.getTypes().isSubtype(state.getTypes().erasure(type), state.getTypes().erasure(mapType));
+    }
+}
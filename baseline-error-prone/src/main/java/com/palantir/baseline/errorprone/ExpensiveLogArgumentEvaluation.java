@@ -0,0 +1,288 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.errorprone;
+
+import com.google.auto.service.AutoService;
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.BugPattern.SeverityLevel;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
+import com.google.errorprone.fixes.SuggestedFix;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.Matchers;
+import com.google.errorprone.matchers.method.MethodMatchers;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.BinaryTree;
+import com.sun.source.tree.BlockTree;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.ExpressionStatementTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.IfTree;
+import com.sun.source.tree.LambdaExpressionTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.ReturnTree;
+import com.sun.source.tree.StatementTree;
+import com.sun.source.tree.ThrowTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.UnaryTree;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreeScanner;
+import com.sun.tools.javac.code.Symbol;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+
+@AutoService(BugChecker.class)
+@BugPattern(
+        name = "ExpensiveLogArgumentEvaluation",
+        link = "https://github.com/palantir/gradle-baseline#baseline-error-prone-checks",
+        linkType = BugPattern.LinkType.CUSTOM,
+        providesFix = BugPattern.ProvidesFix.REQUIRES_HUMAN_ATTENTION,
+        severity = SeverityLevel.WARNING,
+        summary = "Arguments to trace and debug log statements are evaluated even when the level is disabled, "
+                + "expensive arguments should be guarded by a level check.")
+public final class ExpensiveLogArgumentEvaluation extends BugChecker implements MethodInvocationTreeMatcher {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Matcher<ExpressionTree> LOG_METHOD = Matchers.allOf(
+            MoreMatchers.invocationNamed("trace", "debug"),
+            MethodMatchers.instanceMethod()
+                    .onDescendantOf("org.slf4j.Logger")
+                    .withNameMatching(Pattern.compile("trace|debug")));
+
+    private static final Matcher<ExpressionTree> LEVEL_CHECK_METHOD = MethodMatchers.instanceMethod()
+            .onDescendantOf("org.slf4j.Logger")
+            .namedAnyOf("isTraceEnabled", "isDebugEnabled", "isInfoEnabled", "isWarnEnabled", "isErrorEnabled");
+
+    private static final Matcher<ExpressionTree> ARG_FACTORY = Matchers.allOf(
+            MoreMatchers.invocationNamed("of"),
+            MethodMatchers.staticMethod()
+                    .onClassAny("com.palantir.logsafe.SafeArg", "com.palantir.logsafe.UnsafeArg")
+                    .named("of"));
+
+    private static final Matcher<ExpressionTree> MARKER = MoreMatchers.isSubtypeOf("org.slf4j.Marker");
+
+    // Ordered from least to most severe, a level is enabled whenever any level below it is
+    private static final ImmutableList<String> LEVELS = ImmutableList.of("trace", "debug", "info", "warn", "error");
+
+    // Simple accessors are assumed to be cheap field reads
+    private static final Pattern ACCESSOR_NAME = Pattern.compile("(get|is|has)[A-Z].*|size|length|name|ordinal");
+
+    @Override
+    public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+        if (!LOG_METHOD.matches(tree, state)) {
+            return Description.NO_MATCH;
+        }
+        List<? extends ExpressionTree> arguments = tree.getArguments();
+        int firstArgument = !arguments.isEmpty() && MARKER.matches(arguments.get(0), state) ? 2 : 1;
+        Optional<? extends ExpressionTree> expensiveArgument = arguments.stream()
+                .skip(firstArgument)
+                .filter(argument -> isExpensive(argument, state))
+                .findFirst();
+        if (!expensiveArgument.isPresent() || isGuardedByLevelCheck(tree, state)) {
+            return Description.NO_MATCH;
+        }
+        return buildDescription(tree)
+                .setMessage(String.format(
+                        "Argument '%s' is evaluated even when %s logging is disabled. Guard the log statement "
+                                + "with a level check or pass a cheaper value.",
+                        state.getSourceForNode(expensiveArgument.get()),
+                        ASTHelpers.getSymbol(tree).getSimpleName()))
+                .addFix(guardWithLevelCheck(tree, state))
+                .build();
+    }
+
+    /**
+     * Method calls, allocations and string concatenation do work up front. Lambda bodies are deferred, and the
+     * {@code SafeArg.of} and {@code UnsafeArg.of} factories are only as expensive as the values they wrap.
+     */
+    private static boolean isExpensive(ExpressionTree argument, VisitorState state) {
+        Boolean expensive = new TreeScanner<Boolean, Void>() {
+            @Override
+            public Boolean visitMethodInvocation(MethodInvocationTree node, Void unused) {
+                if (ARG_FACTORY.matches(node, state)) {
+                    return scan(node.getArguments(), null);
+                }
+                Symbol symbol = ASTHelpers.getSymbol(node);
+                if (symbol != null
+                        && node.getArguments().isEmpty()
+                        && ACCESSOR_NAME.matcher(symbol.getSimpleName()).matches()) {
+                    return scan(node.getMethodSelect(), null);
+                }
+                return true;
+            }
+
+            @Override
+            public Boolean visitNewClass(NewClassTree node, Void unused) {
+                return true;
+            }
+
+            @Override
+            public Boolean visitBinary(BinaryTree node, Void unused) {
+                if (node.getKind() == Tree.Kind.PLUS
+                        && ASTHelpers.isSameType(ASTHelpers.getType(node), state.getSymtab().stringType, state)
+                        && ASTHelpers.constValue(node) == null) {
+                    return true;
+                }
+                return super.visitBinary(node, unused);
+            }
+
+            @Override
+            public Boolean visitLambdaExpression(LambdaExpressionTree node, Void unused) {
+                return false;
+            }
+
+            @Override
+            public Boolean visitClass(ClassTree node, Void unused) {
+                return false;
+            }
+
+            @Override
+            public Boolean reduce(Boolean first, Boolean second) {
+                return Boolean.TRUE.equals(first) || Boolean.TRUE.equals(second);
+            }
+        }.scan(argument, null);
+        return Boolean.TRUE.equals(expensive);
+    }
+
+    /**
+     * Log statements are guarded when nested within the branch of an {@code if} taken when the level is enabled, or
+     * preceded in an enclosing block by an early exit taken when it is disabled, for example
+     * {@code if (!log.isDebugEnabled()) { return; }}. The level check must be on the same logger, at the level of the
+     * log statement or below it.
+     */
+    private static boolean isGuardedByLevelCheck(MethodInvocationTree tree, VisitorState state) {
+        for (TreePath path = state.getPath(); path.getParentPath() != null; path = path.getParentPath()) {
+            Tree parent = path.getParentPath().getLeaf();
+            if (parent instanceof MethodTree || parent instanceof LambdaExpressionTree || parent instanceof ClassTree) {
+                return false;
+            }
+            if (parent instanceof IfTree) {
+                IfTree ifTree = (IfTree) parent;
+                if ((path.getLeaf() == ifTree.getThenStatement()
+                                && impliesEnabled(ifTree.getCondition(), true, tree, state))
+                        || (path.getLeaf() == ifTree.getElseStatement()
+                                && impliesEnabled(ifTree.getCondition(), false, tree, state))) {
+                    return true;
+                }
+            }
+            if (parent instanceof BlockTree) {
+                for (StatementTree statement : ((BlockTree) parent).getStatements()) {
+                    if (statement == path.getLeaf()) {
+                        break;
+                    }
+                    if (statement instanceof IfTree
+                            && ((IfTree) statement).getElseStatement() == null
+                            && exits(((IfTree) statement).getThenStatement())
+                            && impliesEnabled(((IfTree) statement).getCondition(), false, tree, state)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Whether the condition evaluating to {@code outcome} implies that the level of the log statement is enabled. */
+    private static boolean impliesEnabled(
+            ExpressionTree condition, boolean outcome, MethodInvocationTree logStatement, VisitorState state) {
+        ExpressionTree expression = ASTHelpers.stripParentheses(condition);
+        switch (expression.getKind()) {
+            case LOGICAL_COMPLEMENT:
+                return impliesEnabled(((UnaryTree) expression).getExpression(), !outcome, logStatement, state);
+            case CONDITIONAL_AND:
+            case CONDITIONAL_OR:
+                // Both operands hold when a conjunction is true, and neither holds when a disjunction is false
+                if (outcome != (expression.getKind() == Tree.Kind.CONDITIONAL_AND)) {
+                    return false;
+                }
+                BinaryTree binary = (BinaryTree) expression;
+                return impliesEnabled(binary.getLeftOperand(), outcome, logStatement, state)
+                        || impliesEnabled(binary.getRightOperand(), outcome, logStatement, state);
+            case METHOD_INVOCATION:
+                return outcome && isLevelCheckFor((MethodInvocationTree) expression, logStatement, state);
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isLevelCheckFor(
+            MethodInvocationTree check, MethodInvocationTree logStatement, VisitorState state) {
+        if (!LEVEL_CHECK_METHOD.matches(check, state)) {
+            return false;
+        }
+        Symbol checkedLogger = loggerSymbol(check);
+        if (checkedLogger == null || !checkedLogger.equals(loggerSymbol(logStatement))) {
+            return false;
+        }
+        String checkName = ASTHelpers.getSymbol(check).getSimpleName().toString();
+        String checkedLevel = checkName.substring("is".length(), checkName.length() - "Enabled".length());
+        String loggedLevel = ASTHelpers.getSymbol(logStatement).getSimpleName().toString();
+        return LEVELS.indexOf(checkedLevel.toLowerCase(Locale.ENGLISH)) <= LEVELS.indexOf(loggedLevel);
+    }
+
+    /** Loggers are only known to be the same when both invocations read the same variable. */
+    @Nullable
+    private static Symbol loggerSymbol(MethodInvocationTree tree) {
+        ExpressionTree receiver = ASTHelpers.getReceiver(tree);
+        if (!(receiver instanceof IdentifierTree) && !(receiver instanceof MemberSelectTree)) {
+            return null;
+        }
+        Symbol symbol = ASTHelpers.getSymbol(receiver);
+        return symbol instanceof Symbol.VarSymbol ? symbol : null;
+    }
+
+    private static boolean exits(StatementTree statement) {
+        if (statement instanceof BlockTree) {
+            List<? extends StatementTree> statements = ((BlockTree) statement).getStatements();
+            return !statements.isEmpty() && exits(statements.get(statements.size() - 1));
+        }
+        return statement instanceof ReturnTree || statement instanceof ThrowTree;
+    }
+
+    /**
+     * Wraps standalone log statements on a plain logger reference in the matching level check. Log statements
+     * used as the body of a lambda or on a computed logger are left to a human.
+     */
+    private static Optional<SuggestedFix> guardWithLevelCheck(MethodInvocationTree tree, VisitorState state) {
+        Tree statement = state.getPath().getParentPath().getLeaf();
+        Tree enclosing = state.getPath().getParentPath().getParentPath().getLeaf();
+        if (!(statement instanceof ExpressionStatementTree) || !(enclosing instanceof BlockTree)) {
+            return Optional.empty();
+        }
+        ExpressionTree logger = ASTHelpers.getReceiver(tree);
+        if (!(logger instanceof IdentifierTree) && !(logger instanceof MemberSelectTree)) {
+            return Optional.empty();
+        }
+        String level = ASTHelpers.getSymbol(tree).getSimpleName().toString();
+        String levelCheck = "is" + level.substring(0, 1).toUpperCase(Locale.ENGLISH) + level.substring(1) + "Enabled";
+        return Optional.of(SuggestedFix.builder()
+                .prefixWith(statement, String.format("if (%s.%s()) {", state.getSourceForNode(logger), levelCheck))
+                .postfixWith(statement, "}")
+                .build());
+    }
+}
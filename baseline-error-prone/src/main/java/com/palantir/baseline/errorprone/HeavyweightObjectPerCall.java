@@ -0,0 +1,340 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.errorprone;
+
+import com.google.auto.service.AutoService;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.BugPattern.SeverityLevel;
+import com.google.errorprone.ErrorProneFlags;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
+import com.google.errorprone.bugpatterns.BugChecker.NewClassTreeMatcher;
+import com.google.errorprone.fixes.SuggestedFix;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.DoWhileLoopTree;
+import com.sun.source.tree.EnhancedForLoopTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.ForLoopTree;
+import com.sun.source.tree.LambdaExpressionTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.ReturnTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.tree.WhileLoopTree;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreePathScanner;
+import com.sun.tools.javac.code.Flags;
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.code.Type;
+import com.sun.tools.javac.tree.JCTree;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+@AutoService(BugChecker.class)
+@BugPattern(
+        name = "HeavyweightObjectPerCall",
+        link = "https://github.com/palantir/gradle-baseline#baseline-error-prone-checks",
+        linkType = BugPattern.LinkType.CUSTOM,
+        providesFix = BugPattern.ProvidesFix.REQUIRES_HUMAN_ATTENTION,
+        severity = SeverityLevel.WARNING,
+        summary = "Objects which are expensive to create and safe to reuse should be created once and stored in a "
+                + "field, rather than every time a method is called.")
+public final class HeavyweightObjectPerCall extends BugChecker
+        implements MethodInvocationTreeMatcher, NewClassTreeMatcher {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Flag listing additional fully qualified types to treat as heavyweight, set by the gradle plugin. */
+    static final String ADDITIONAL_TYPES_FLAG = "HeavyweightObjectPerCall:AdditionalTypes";
+
+    private static final String OBJECT_MAPPER = "com.fasterxml.jackson.databind.ObjectMapper";
+
+    /** Thread-safe types which are expensive to create, whether by constructor or static factory. */
+    private static final ImmutableSet<String> DEFAULT_TYPES = ImmutableSet.of(
+            OBJECT_MAPPER, "com.google.gson.Gson", "java.time.format.DateTimeFormatter", "javax.xml.bind.JAXBContext");
+
+    /** Types whose configuration can't change once created, so any shared instance behaves the same. */
+    private static final ImmutableSet<String> IMMUTABLE_TYPES =
+            ImmutableSet.of("com.google.gson.Gson", "java.time.format.DateTimeFormatter", "javax.xml.bind.JAXBContext");
+
+    /** {@link com.fasterxml.jackson.databind.ObjectMapper} methods which read its configuration without changing it. */
+    private static final Pattern OBJECT_MAPPER_USAGE =
+            Pattern.compile("read.*|write.*|convertValue|treeToValue|valueToTree");
+
+    /**
+     * Types which are not thread-safe, but may be reused between the iterations of a loop. The JAXP factories are
+     * documented as unsafe for concurrent use, so can't be shared through a static field.
+     */
+    private static final ImmutableSet<String> LOOP_TYPES = ImmutableSet.of(
+            "java.security.MessageDigest",
+            "javax.xml.parsers.DocumentBuilderFactory",
+            "javax.xml.parsers.SAXParserFactory",
+            "javax.xml.stream.XMLInputFactory",
+            "javax.xml.stream.XMLOutputFactory",
+            "javax.xml.transform.TransformerFactory",
+            "javax.xml.xpath.XPathFactory");
+
+    private static final Pattern WORD_BOUNDARY = Pattern.compile("([a-z0-9])([A-Z])");
+    private static final Pattern ACRONYM_BOUNDARY = Pattern.compile("([A-Z])([A-Z][a-z])");
+
+    private final ImmutableSet<String> heavyweightTypes;
+
+    // Required for ServiceLoader
+    public HeavyweightObjectPerCall() {
+        this(ErrorProneFlags.empty());
+    }
+
+    public HeavyweightObjectPerCall(ErrorProneFlags flags) {
+        this.heavyweightTypes = ImmutableSet.<String>builder()
+                .addAll(DEFAULT_TYPES)
+                .addAll(flags.getList(ADDITIONAL_TYPES_FLAG).orElseGet(ImmutableList::of))
+                .build();
+    }
+
+    @Override
+    public Description matchNewClass(NewClassTree tree, VisitorState state) {
+        if (tree.getClassBody() != null) {
+            return Description.NO_MATCH;
+        }
+        return match(tree, ASTHelpers.getType(tree), state);
+    }
+
+    @Override
+    public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+        Symbol.MethodSymbol symbol = ASTHelpers.getSymbol(tree);
+        if (symbol == null || !symbol.isStatic()) {
+            return Description.NO_MATCH;
+        }
+        // Static factories return an instance of the type which declares them
+        Type owner = symbol.owner.type;
+        if (!state.getTypes().isSubtype(
+                state.getTypes().erasure(symbol.getReturnType()), state.getTypes().erasure(owner))) {
+            return Description.NO_MATCH;
+        }
+        return match(tree, owner, state);
+    }
+
+    private Description match(ExpressionTree tree, Type type, VisitorState state) {
+        if (type == null) {
+            return Description.NO_MATCH;
+        }
+        String typeName = state.getTypes().erasure(type).tsym.getQualifiedName().toString();
+        if (LOOP_TYPES.contains(typeName)) {
+            return isCreatedPerIteration(state)
+                    ? buildDescription(tree)
+                            .setMessage(String.format(
+                                    "%s is created on every iteration of the loop, create a single instance before "
+                                            + "the loop and reuse it. It is not thread-safe, so must not be shared "
+                                            + "through a field.",
+                                    simpleName(typeName)))
+                            .build()
+                    : Description.NO_MATCH;
+        }
+        // Instances created from arguments which vary between calls can't simply be reused
+        if (!heavyweightTypes.contains(typeName) || !isCreatedPerCall(state.getPath()) || !hasConstantArguments(tree)) {
+            return Description.NO_MATCH;
+        }
+        return buildDescription(tree)
+                .setMessage(String.format(
+                        "%s is expensive to create and safe to reuse, store a single instance in a field rather than "
+                                + "creating one every time the method is called",
+                        simpleName(typeName)))
+                .addFix(hoistToStaticField(tree, typeName, state))
+                .build();
+    }
+
+    /**
+     * Instances created in methods and lambdas are created repeatedly, unlike those in initializers and constructors.
+     * Instances returned directly are assumed to come from a factory method, which callers should invoke once.
+     */
+    private static boolean isCreatedPerCall(TreePath path) {
+        if (path.getParentPath().getLeaf() instanceof ReturnTree) {
+            return false;
+        }
+        for (Tree enclosing : path) {
+            if (enclosing instanceof MethodTree) {
+                Symbol.MethodSymbol method = ASTHelpers.getSymbol((MethodTree) enclosing);
+                return method != null && !method.isConstructor();
+            }
+            if (enclosing instanceof LambdaExpressionTree) {
+                return true;
+            }
+            if (enclosing instanceof ClassTree) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isCreatedPerIteration(VisitorState state) {
+        for (Tree enclosing : state.getPath()) {
+            if (enclosing instanceof ForLoopTree
+                    || enclosing instanceof EnhancedForLoopTree
+                    || enclosing instanceof WhileLoopTree
+                    || enclosing instanceof DoWhileLoopTree) {
+                return true;
+            }
+            if (enclosing instanceof MethodTree
+                    || enclosing instanceof LambdaExpressionTree
+                    || enclosing instanceof ClassTree) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasConstantArguments(ExpressionTree tree) {
+        return arguments(tree).stream().allMatch(HeavyweightObjectPerCall::isConstant);
+    }
+
+    private static List<? extends ExpressionTree> arguments(ExpressionTree tree) {
+        return tree instanceof NewClassTree
+                ? ((NewClassTree) tree).getArguments()
+                : ((MethodInvocationTree) tree).getArguments();
+    }
+
+    /**
+     * Hoists instances used inline whose configuration can't be changed by that use. Instances assigned to local
+     * variables, passed to other methods or chained into configuration methods such as
+     * {@code new ObjectMapper().registerModule(module)} may be configured after they are created, which would not be
+     * safe to do on a shared instance.
+     */
+    private static Optional<SuggestedFix> hoistToStaticField(ExpressionTree tree, String typeName, VisitorState state) {
+        Tree parent = state.getPath().getParentPath().getLeaf();
+        if (parent instanceof VariableTree) {
+            return Optional.empty();
+        }
+        if (!IMMUTABLE_TYPES.contains(typeName)
+                && !(typeName.equals(OBJECT_MAPPER) && isReceiverOf(OBJECT_MAPPER_USAGE, state))) {
+            return Optional.empty();
+        }
+        // Constant locals and instance fields aren't in scope of a static field initializer
+        if (!arguments(tree).stream().allMatch(MoreASTHelpers::isAccessibleFromStaticContext)) {
+            return Optional.empty();
+        }
+        ClassTree enclosingClass = ASTHelpers.findEnclosingNode(state.getPath(), ClassTree.class);
+        if (enclosingClass == null || !MoreASTHelpers.canHoistIntoStaticField(enclosingClass)) {
+            return Optional.empty();
+        }
+        Optional<? extends Tree> firstMember = MoreASTHelpers.firstDeclaredMember(enclosingClass);
+        if (!firstMember.isPresent()) {
+            return Optional.empty();
+        }
+        SuggestedFix.Builder fix = SuggestedFix.builder();
+        String type = MoreSuggestedFixes.qualifyType(state, fix, typeName);
+        String fieldName = fieldName(tree, typeName, enclosingClass, state);
+        return Optional.of(fix.prefixWith(
+                        firstMember.get(),
+                        String.format(
+                                "private static final %s %s = %s;\n", type, fieldName, state.getSourceForNode(tree)))
+                .replace(tree, fieldName)
+                .build());
+    }
+
+    private static boolean isReceiverOf(Pattern methodNames, VisitorState state) {
+        Tree parent = state.getPath().getParentPath().getLeaf();
+        Tree grandparent = state.getPath().getParentPath().getParentPath().getLeaf();
+        return parent instanceof MemberSelectTree
+                && grandparent instanceof MethodInvocationTree
+                && ((MethodInvocationTree) grandparent).getMethodSelect() == parent
+                && methodNames.matcher(((MemberSelectTree) parent).getIdentifier()).matches();
+    }
+
+    private static boolean isConstant(ExpressionTree argument) {
+        if (ASTHelpers.constValue(argument) != null) {
+            return true;
+        }
+        if (argument instanceof MemberSelectTree
+                && ((MemberSelectTree) argument).getIdentifier().contentEquals("class")) {
+            return true;
+        }
+        Symbol symbol = ASTHelpers.getSymbol(argument);
+        return symbol instanceof Symbol.VarSymbol
+                && symbol.isStatic()
+                && (symbol.flags() & Flags.FINAL) != 0;
+    }
+
+    /**
+     * Names the field after the type, numbering the instances of that type created per call in the class in source
+     * order, skipping names which are already declared, so that fixes for each of them don't collide.
+     */
+    private static String fieldName(
+            ExpressionTree tree, String typeName, ClassTree enclosingClass, VisitorState state) {
+        String baseName = upperSnake(simpleName(typeName));
+        int treeStart = ((JCTree) tree).getStartPosition();
+        int[] preceding = {0};
+        new TreePathScanner<Void, Void>() {
+            @Override
+            public Void visitNewClass(NewClassTree node, Void unused) {
+                countIfSameType(node, ASTHelpers.getType(node));
+                return super.visitNewClass(node, unused);
+            }
+
+            @Override
+            public Void visitMethodInvocation(MethodInvocationTree node, Void unused) {
+                Symbol.MethodSymbol symbol = ASTHelpers.getSymbol(node);
+                if (symbol != null && symbol.isStatic()) {
+                    countIfSameType(node, symbol.owner.type);
+                }
+                return super.visitMethodInvocation(node, unused);
+            }
+
+            private void countIfSameType(ExpressionTree node, Type type) {
+                if (((JCTree) node).getStartPosition() < treeStart
+                        && isCreatedPerCall(getCurrentPath())
+                        && type != null
+                        && state.getTypes().erasure(type).tsym.getQualifiedName().contentEquals(typeName)) {
+                    preceding[0]++;
+                }
+            }
+        }.scan(TreePath.getPath(state.getPath().getCompilationUnit(), enclosingClass), null);
+
+        Set<String> memberNames = enclosingClass.getMembers().stream()
+                .filter(member -> member instanceof VariableTree)
+                .map(member -> ((VariableTree) member).getName().toString())
+                .collect(Collectors.toSet());
+        int available = 0;
+        for (int suffix = 1; ; suffix++) {
+            String name = suffix == 1 ? baseName : baseName + "_" + suffix;
+            if (!memberNames.contains(name) && available++ == preceding[0]) {
+                return name;
+            }
+        }
+    }
+
+    /** Unlike {@link com.google.common.base.CaseFormat}, keeps acronyms such as 'XML' and 'JAXB' together. */
+    private static String upperSnake(String typeName) {
+        String words = WORD_BOUNDARY.matcher(typeName).replaceAll("$1_$2");
+        return ACRONYM_BOUNDARY.matcher(words).replaceAll("$1_$2").toUpperCase(Locale.ENGLISH);
+    }
+
+    private static String simpleName(String qualifiedName) {
+        return qualifiedName.substring(qualifiedName.lastIndexOf('.') + 1);
+    }
+}
@@ -0,0 +1,361 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.errorprone;
+
+import com.google.auto.service.AutoService;
+import com.google.common.collect.ImmutableSet;
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.BugPattern.SeverityLevel;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.bugpatterns.BugChecker.EnhancedForLoopTreeMatcher;
+import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
+import com.google.errorprone.fixes.SuggestedFix;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.AssignmentTree;
+import com.sun.source.tree.BlockTree;
+import com.sun.source.tree.CompoundAssignmentTree;
+import com.sun.source.tree.EnhancedForLoopTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.LambdaExpressionTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreePathScanner;
+import com.sun.source.util.TreeScanner;
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.code.Type;
+import com.sun.tools.javac.tree.JCTree;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+@AutoService(BugChecker.class)
+@BugPattern(
+        name = "KeySetThenGet",
+        link = "https://github.com/palantir/gradle-baseline#baseline-error-prone-checks",
+        linkType = BugPattern.LinkType.CUSTOM,
+        providesFix = BugPattern.ProvidesFix.REQUIRES_HUMAN_ATTENTION,
+        severity = SeverityLevel.SUGGESTION,
+        summary = "Iterating over the keys of a map and looking up each value repeats a lookup per key which "
+                + "iterating over the entries avoids.")
+public final class KeySetThenGet extends BugChecker
+        implements EnhancedForLoopTreeMatcher, MethodInvocationTreeMatcher {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Methods which read from the map without modifying it, and so may be interleaved with entry iteration. */
+    private static final ImmutableSet<String> READ_ONLY_METHODS =
+            ImmutableSet.of("get", "getOrDefault", "containsKey", "containsValue", "size", "isEmpty", "row");
+
+    private enum KeyedCollection {
+        MAP("java.util.Map", "keySet", "get", ".entrySet()"),
+        MULTIMAP("com.google.common.collect.Multimap", "keySet", "get", null),
+        TABLE("com.google.common.collect.Table", "rowKeySet", "row", ".rowMap().entrySet()");
+
+        private final String typeName;
+        private final String keySetMethod;
+        private final String lookupMethod;
+        // Multimap.asMap values are collections, which differ from the List or Set returned by ListMultimap.get
+        private final String entrySetSuffix;
+
+        KeyedCollection(String typeName, String keySetMethod, String lookupMethod, String entrySetSuffix) {
+            this.typeName = typeName;
+            this.keySetMethod = keySetMethod;
+            this.lookupMethod = lookupMethod;
+            this.entrySetSuffix = entrySetSuffix;
+        }
+    }
+
+    @Override
+    public Description matchEnhancedForLoop(EnhancedForLoopTree tree, VisitorState state) {
+        Optional<KeyIteration> maybeIteration = KeyIteration.of(tree.getExpression(), state);
+        if (!maybeIteration.isPresent()) {
+            return Description.NO_MATCH;
+        }
+        KeyIteration iteration = maybeIteration.get();
+        Symbol key = ASTHelpers.getSymbol(tree.getVariable());
+        Lookups lookups = Lookups.scan(tree.getStatement(), iteration, key, state);
+        if (lookups.lookups.isEmpty()) {
+            return Description.NO_MATCH;
+        }
+        return buildDescription(tree.getExpression())
+                .setMessage(String.format(
+                        "Iterating over the keys of '%s' and looking up each value repeats a lookup per key, "
+                                + "iterate over %s%s instead",
+                        state.getSourceForNode(iteration.receiver),
+                        state.getSourceForNode(iteration.receiver),
+                        iteration.kind.entrySetSuffix == null ? ".asMap().entrySet()" : iteration.kind.entrySetSuffix))
+                .addFix(rewriteLoop(tree, iteration, lookups, state))
+                .build();
+    }
+
+    @Override
+    public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+        if (!(tree.getMethodSelect() instanceof MemberSelectTree)
+                || !((MemberSelectTree) tree.getMethodSelect()).getIdentifier().contentEquals("forEach")
+                || tree.getArguments().size() != 1
+                || !(tree.getArguments().get(0) instanceof LambdaExpressionTree)) {
+            return Description.NO_MATCH;
+        }
+        Optional<KeyIteration> maybeIteration =
+                KeyIteration.of(((MemberSelectTree) tree.getMethodSelect()).getExpression(), state);
+        LambdaExpressionTree lambda = (LambdaExpressionTree) tree.getArguments().get(0);
+        if (!maybeIteration.isPresent()
+                || maybeIteration.get().kind != KeyedCollection.MAP
+                || lambda.getParameters().size() != 1) {
+            return Description.NO_MATCH;
+        }
+        KeyIteration iteration = maybeIteration.get();
+        Symbol key = ASTHelpers.getSymbol(lambda.getParameters().get(0));
+        Lookups lookups = Lookups.scan(lambda.getBody(), iteration, key, state);
+        if (lookups.lookups.isEmpty()) {
+            return Description.NO_MATCH;
+        }
+        return buildDescription(tree)
+                .setMessage(String.format(
+                        "Iterating over the keys of '%s' and looking up each value repeats a lookup per key, "
+                                + "use %s.forEach((key, value) -> ...) instead",
+                        state.getSourceForNode(iteration.receiver),
+                        state.getSourceForNode(iteration.receiver)))
+                .addFix(rewriteForEach(tree, lambda, iteration, lookups, state))
+                .build();
+    }
+
+    private static Optional<SuggestedFix> rewriteLoop(
+            EnhancedForLoopTree tree, KeyIteration iteration, Lookups lookups, VisitorState state) {
+        if (iteration.kind.entrySetSuffix == null
+                || !lookups.canReplaceLookups()
+                || !(tree.getStatement() instanceof BlockTree)) {
+            return Optional.empty();
+        }
+        Optional<String> entryName = unusedName("entry", state);
+        List<Type> keyTypes = ASTHelpers.getType(tree.getExpression()).getTypeArguments();
+        Type valueType = ASTHelpers.getType(lookups.lookups.get(0));
+        if (!entryName.isPresent()
+                || keyTypes.size() != 1
+                || !isDenotable(keyTypes.get(0))
+                || !isDenotable(valueType)) {
+            return Optional.empty();
+        }
+        VariableTree variable = tree.getVariable();
+        SuggestedFix.Builder fix = SuggestedFix.builder();
+        String mapType = MoreSuggestedFixes.qualifyType(state, fix, "java.util.Map");
+        fix.replace(
+                variable,
+                String.format(
+                        "%s.Entry<%s, %s> %s",
+                        mapType,
+                        MoreSuggestedFixes.prettyType(state, fix, keyTypes.get(0)),
+                        MoreSuggestedFixes.prettyType(state, fix, valueType),
+                        entryName.get()));
+        fix.replace(tree.getExpression(), state.getSourceForNode(iteration.receiver) + iteration.kind.entrySetSuffix);
+        if (lookups.keyReferences > lookups.lookups.size()) {
+            // The key is used other than to look up its value
+            fix.prefixWith(
+                    ((BlockTree) tree.getStatement()).getStatements().get(0),
+                    state.getSourceForNode(variable) + " = " + entryName.get() + ".getKey();\n");
+        }
+        for (MethodInvocationTree lookup : lookups.lookups) {
+            fix.replace(lookup, entryName.get() + ".getValue()");
+        }
+        return Optional.of(fix.build());
+    }
+
+    private static Optional<SuggestedFix> rewriteForEach(
+            MethodInvocationTree tree,
+            LambdaExpressionTree lambda,
+            KeyIteration iteration,
+            Lookups lookups,
+            VisitorState state) {
+        VariableTree keyParameter = lambda.getParameters().get(0);
+        // Explicitly typed parameters would need the value type to be spelled out as well
+        Tree keyType = keyParameter.getType();
+        if (!lookups.canReplaceLookups() || (keyType != null && ((JCTree) keyType).getStartPosition() >= 0)) {
+            return Optional.empty();
+        }
+        Optional<String> valueName = unusedName("value", state);
+        if (!valueName.isPresent()) {
+            return Optional.empty();
+        }
+        String parameters = keyParameter.getName() + ", " + valueName.get();
+        boolean parenthesized = state.getSourceForNode(lambda).startsWith("(");
+        SuggestedFix.Builder fix = SuggestedFix.builder()
+                .replace(tree.getMethodSelect(), state.getSourceForNode(iteration.receiver) + ".forEach")
+                .replace(keyParameter, parenthesized ? parameters : "(" + parameters + ")");
+        for (MethodInvocationTree lookup : lookups.lookups) {
+            fix.replace(lookup, valueName.get());
+        }
+        return Optional.of(fix.build());
+    }
+
+    /** Types containing wildcards or captured types can't be spelled out in a variable declaration. */
+    private static boolean isDenotable(Type type) {
+        return type != null && !type.toString().contains("?");
+    }
+
+    /** Returns the preferred name if no variable in the enclosing method already uses it. */
+    private static Optional<String> unusedName(String name, VisitorState state) {
+        MethodTree method = ASTHelpers.findEnclosingNode(state.getPath(), MethodTree.class);
+        if (method == null) {
+            return Optional.empty();
+        }
+        Boolean used = new TreeScanner<Boolean, Void>() {
+            @Override
+            public Boolean visitVariable(VariableTree node, Void unused) {
+                return node.getName().contentEquals(name) || Boolean.TRUE.equals(super.visitVariable(node, unused));
+            }
+
+            @Override
+            public Boolean reduce(Boolean first, Boolean second) {
+                return Boolean.TRUE.equals(first) || Boolean.TRUE.equals(second);
+            }
+        }.scan(method, null);
+        return Boolean.TRUE.equals(used) ? Optional.empty() : Optional.of(name);
+    }
+
+    /**
+     * Maps referenced by a local variable, parameter or a field on {@code this}, which refer to the same instance
+     * everywhere within a loop.
+     */
+    private static Optional<Symbol> mapReference(ExpressionTree tree) {
+        if (tree instanceof MemberSelectTree) {
+            ExpressionTree expression = ((MemberSelectTree) tree).getExpression();
+            if (!(expression instanceof IdentifierTree)
+                    || !((IdentifierTree) expression).getName().contentEquals("this")) {
+                return Optional.empty();
+            }
+        } else if (!(tree instanceof IdentifierTree)) {
+            return Optional.empty();
+        }
+        Symbol symbol = ASTHelpers.getSymbol(tree);
+        return symbol instanceof Symbol.VarSymbol ? Optional.of(symbol) : Optional.empty();
+    }
+
+    private static final class KeyIteration {
+        private final KeyedCollection kind;
+        private final ExpressionTree receiver;
+        private final Symbol map;
+
+        private KeyIteration(KeyedCollection kind, ExpressionTree receiver, Symbol map) {
+            this.kind = kind;
+            this.receiver = receiver;
+            this.map = map;
+        }
+
+        static Optional<KeyIteration> of(ExpressionTree tree, VisitorState state) {
+            if (!(tree instanceof MethodInvocationTree)
+                    || !((MethodInvocationTree) tree).getArguments().isEmpty()
+                    || !(((MethodInvocationTree) tree).getMethodSelect() instanceof MemberSelectTree)) {
+                return Optional.empty();
+            }
+            MemberSelectTree select = (MemberSelectTree) ((MethodInvocationTree) tree).getMethodSelect();
+            ExpressionTree receiver = select.getExpression();
+            Type receiverType = ASTHelpers.getType(receiver);
+            Optional<Symbol> map = mapReference(receiver);
+            if (receiverType == null || !map.isPresent()) {
+                return Optional.empty();
+            }
+            for (KeyedCollection kind : KeyedCollection.values()) {
+                Type type = state.getTypeFromString(kind.typeName);
+                if (type != null
+                        && select.getIdentifier().contentEquals(kind.keySetMethod)
+                        && state.getTypes().isSubtype(
+                                state.getTypes().erasure(receiverType), state.getTypes().erasure(type))) {
+                    return Optional.of(new KeyIteration(kind, receiver, map.get()));
+                }
+            }
+            return Optional.empty();
+        }
+    }
+
+    /** Lookups of the current key on the iterated map, along with other uses which may prevent a rewrite. */
+    private static final class Lookups {
+        private final List<MethodInvocationTree> lookups = new ArrayList<>();
+        private int keyReferences;
+        private boolean keyReassigned;
+        private boolean mapModified;
+
+        static Lookups scan(Tree body, KeyIteration iteration, Symbol key, VisitorState state) {
+            Lookups result = new Lookups();
+            new TreePathScanner<Void, Void>() {
+                @Override
+                public Void visitMethodInvocation(MethodInvocationTree node, Void unused) {
+                    if (isLookup(node)) {
+                        result.lookups.add(node);
+                    }
+                    return super.visitMethodInvocation(node, unused);
+                }
+
+                @Override
+                public Void visitIdentifier(IdentifierTree node, Void unused) {
+                    Symbol symbol = ASTHelpers.getSymbol(node);
+                    if (key.equals(symbol)) {
+                        result.keyReferences++;
+                        Tree parent = getCurrentPath().getParentPath().getLeaf();
+                        if ((parent instanceof AssignmentTree && ((AssignmentTree) parent).getVariable() == node)
+                                || (parent instanceof CompoundAssignmentTree
+                                        && ((CompoundAssignmentTree) parent).getVariable() == node)) {
+                            result.keyReassigned = true;
+                        }
+                    }
+                    if (iteration.map.equals(symbol) && !isReadOnlyReceiver(getCurrentPath())) {
+                        result.mapModified = true;
+                    }
+                    return super.visitIdentifier(node, unused);
+                }
+
+                @Override
+                public Void visitMemberSelect(MemberSelectTree node, Void unused) {
+                    if (mapReference(node).filter(iteration.map::equals).isPresent()
+                            && !isReadOnlyReceiver(getCurrentPath())) {
+                        result.mapModified = true;
+                    }
+                    return super.visitMemberSelect(node, unused);
+                }
+
+                private boolean isLookup(MethodInvocationTree node) {
+                    if (!(node.getMethodSelect() instanceof MemberSelectTree) || node.getArguments().size() != 1) {
+                        return false;
+                    }
+                    MemberSelectTree select = (MemberSelectTree) node.getMethodSelect();
+                    return select.getIdentifier().contentEquals(iteration.kind.lookupMethod)
+                            && mapReference(select.getExpression()).filter(iteration.map::equals).isPresent()
+                            && key.equals(ASTHelpers.getSymbol(node.getArguments().get(0)));
+                }
+            }.scan(new TreePath(state.getPath(), body), null);
+            return result;
+        }
+
+        /** The map may be read through the methods which don't modify it, for example to look up other keys. */
+        private static boolean isReadOnlyReceiver(TreePath reference) {
+            Tree parent = reference.getParentPath().getLeaf();
+            return parent instanceof MemberSelectTree
+                    && reference.getParentPath().getParentPath().getLeaf() instanceof MethodInvocationTree
+                    && READ_ONLY_METHODS.contains(((MemberSelectTree) parent).getIdentifier().toString());
+        }
+
+        boolean canReplaceLookups() {
+            return !keyReassigned && !mapModified;
+        }
+    }
+}
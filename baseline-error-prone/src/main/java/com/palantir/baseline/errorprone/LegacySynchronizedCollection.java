@@ -0,0 +1,321 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.errorprone;
+
+import com.google.auto.service.AutoService;
+import com.google.common.collect.ImmutableMap;
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.bugpatterns.BugChecker.VariableTreeMatcher;
+import com.google.errorprone.fixes.SuggestedFix;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.Matchers;
+import com.google.errorprone.matchers.method.MethodMatchers;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.EnhancedForLoopTree;
+import com.sun.source.tree.ExpressionStatementTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.LambdaExpressionTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.ParameterizedTypeTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreePathScanner;
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.code.Type;
+import com.sun.tools.javac.code.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import javax.lang.model.element.ElementKind;
+
+@AutoService(BugChecker.class)
+@BugPattern(
+        name = "LegacySynchronizedCollection",
+        link = "https://github.com/palantir/gradle-baseline#baseline-error-prone-checks",
+        linkType = BugPattern.LinkType.CUSTOM,
+        providesFix = BugPattern.ProvidesFix.REQUIRES_HUMAN_ATTENTION,
+        severity = BugPattern.SeverityLevel.SUGGESTION,
+        summary = "Legacy synchronized collections acquire a monitor on every call. Prefer unsynchronized "
+                + "implementations for objects which don't escape a method, and concurrent collections for "
+                + "shared fields.")
+public final class LegacySynchronizedCollection extends BugChecker implements VariableTreeMatcher {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String STACK = "java.util.Stack";
+
+    private static final String CONCURRENT_HASH_MAP = "java.util.concurrent.ConcurrentHashMap";
+
+    /** Unsynchronized replacements for legacy types used within a single method. */
+    private static final ImmutableMap<String, String> LOCAL_REPLACEMENTS = ImmutableMap.of(
+            "java.util.Hashtable", "java.util.HashMap",
+            "java.util.Vector", "java.util.ArrayList",
+            "java.util.Stack", "java.util.ArrayDeque",
+            "java.lang.StringBuffer", "java.lang.StringBuilder");
+
+    /** Concurrent replacements for legacy types shared through a field. */
+    private static final ImmutableMap<String, String> FIELD_REPLACEMENTS = ImmutableMap.of(
+            "java.util.Hashtable", "ConcurrentHashMap",
+            "java.util.Vector", "a concurrent collection, or an ArrayList guarded by an explicit lock",
+            "java.util.Stack", "ConcurrentLinkedDeque",
+            "java.lang.StringBuffer", "a StringBuilder guarded by an explicit lock");
+
+    private static final Matcher<ExpressionTree> SYNCHRONIZED_WRAPPER = Matchers.allOf(
+            MoreMatchers.invocationNamed("synchronizedMap", "synchronizedSet", "synchronizedList"),
+            MethodMatchers.staticMethod()
+                    .onClass("java.util.Collections")
+                    .withNameMatching(Pattern.compile("synchronizedMap|synchronizedSet|synchronizedList")));
+
+    @Override
+    public Description matchVariable(VariableTree tree, VisitorState state) {
+        Symbol symbol = ASTHelpers.getSymbol(tree);
+        ExpressionTree initializer = tree.getInitializer();
+        if (symbol == null || initializer == null) {
+            return Description.NO_MATCH;
+        }
+        if (symbol.getKind() == ElementKind.LOCAL_VARIABLE) {
+            return legacyType(initializer, state)
+                    .map(legacyType -> matchLocal(tree, symbol, (NewClassTree) initializer, legacyType, state))
+                    .orElse(Description.NO_MATCH);
+        }
+        if (symbol.getKind() == ElementKind.FIELD) {
+            return matchField(tree, initializer, state);
+        }
+        return Description.NO_MATCH;
+    }
+
+    private static Optional<String> legacyType(ExpressionTree initializer, VisitorState state) {
+        if (!(initializer instanceof NewClassTree) || ((NewClassTree) initializer).getClassBody() != null) {
+            return Optional.empty();
+        }
+        Type type = ASTHelpers.getType(initializer);
+        if (type == null) {
+            return Optional.empty();
+        }
+        String typeName = state.getTypes().erasure(type).tsym.getQualifiedName().toString();
+        return LOCAL_REPLACEMENTS.containsKey(typeName) ? Optional.of(typeName) : Optional.empty();
+    }
+
+    private Description matchLocal(
+            VariableTree tree, Symbol symbol, NewClassTree initializer, String legacyType, VisitorState state) {
+        LocalUsages usages = LocalUsages.scan(symbol, legacyType, state);
+        if (usages.escapes) {
+            // Objects which escape the method may be shared with other threads, or required by an API
+            return Description.NO_MATCH;
+        }
+        String replacement = LOCAL_REPLACEMENTS.get(legacyType);
+        return buildDescription(tree)
+                .setMessage(String.format(
+                        "%s acquires a monitor on every call, prefer %s for objects which don't escape the method%s",
+                        simpleName(legacyType),
+                        simpleName(replacement),
+                        legacyType.equals(STACK)
+                                ? ". Unlike Stack, ArrayDeque rejects null elements, iterates from the top of the "
+                                        + "stack, and returns null from peek on an empty stack rather than throwing"
+                                : ""))
+                .addFix(replaceLocal(tree, initializer, legacyType, replacement, usages, state))
+                .build();
+    }
+
+    private static Optional<SuggestedFix> replaceLocal(
+            VariableTree tree,
+            NewClassTree initializer,
+            String legacyType,
+            String replacement,
+            LocalUsages usages,
+            VisitorState state) {
+        // ArrayDeque rejects null elements and doesn't throw from peek on an empty stack, which can't be verified
+        if (legacyType.equals(STACK)) {
+            return Optional.empty();
+        }
+        // Vector(int, int) sets a capacity increment which ArrayList does not support
+        if (legacyType.equals("java.util.Vector") && initializer.getArguments().size() > 1) {
+            return Optional.empty();
+        }
+        Types types = state.getTypes();
+        Type replacementType = types.erasure(state.getTypeFromString(replacement));
+        Type declaredType = types.erasure(ASTHelpers.getType(tree.getType()));
+        boolean declaredAsLegacyType = declaredType.tsym.getQualifiedName().contentEquals(legacyType);
+        if (!declaredAsLegacyType && !types.isSubtype(replacementType, declaredType)) {
+            return Optional.empty();
+        }
+        for (MethodInvocationTree invocation : usages.invocations) {
+            if (!isInheritedBy(ASTHelpers.getSymbol(invocation), replacementType, state)) {
+                return Optional.empty();
+            }
+        }
+
+        SuggestedFix.Builder fix = SuggestedFix.builder();
+        String replacementName = MoreSuggestedFixes.qualifyType(state, fix, replacement);
+        fix.replace(rawType(initializer.getIdentifier()), replacementName);
+        if (declaredAsLegacyType) {
+            fix.replace(rawType(tree.getType()), replacementName);
+        }
+        return Optional.of(fix.build());
+    }
+
+    /** Methods which the replacement type provides, because they implement or override a shared supertype. */
+    private static boolean isInheritedBy(Symbol.MethodSymbol method, Type replacementType, VisitorState state) {
+        if (method == null) {
+            return false;
+        }
+        Types types = state.getTypes();
+        if (types.isSubtype(replacementType, types.erasure(method.owner.type))) {
+            return true;
+        }
+        return ASTHelpers.findSuperMethods(method, types).stream()
+                .anyMatch(superMethod -> types.isSubtype(replacementType, types.erasure(superMethod.owner.type)));
+    }
+
+    private Description matchField(VariableTree tree, ExpressionTree initializer, VisitorState state) {
+        if (SYNCHRONIZED_WRAPPER.matches(initializer, state)) {
+            MethodInvocationTree wrapper = (MethodInvocationTree) initializer;
+            String wrapperName = ((MemberSelectTree) wrapper.getMethodSelect()).getIdentifier().toString();
+            return buildDescription(initializer)
+                    .setMessage(String.format(
+                            "Collections.%s acquires a single monitor on every call, prefer a concurrent collection "
+                                    + "for shared fields. Callers which synchronize on the collection to iterate "
+                                    + "must be updated, and concurrent collections reject null elements.",
+                            wrapperName))
+                    .addFix(replaceSynchronizedWrapper(wrapper, wrapperName, state))
+                    .build();
+        }
+        Optional<String> legacyType = legacyType(initializer, state);
+        if (!legacyType.isPresent()) {
+            return Description.NO_MATCH;
+        }
+        return buildDescription(initializer)
+                .setMessage(String.format(
+                        "%s acquires a monitor on every call, prefer %s for shared fields",
+                        simpleName(legacyType.get()), FIELD_REPLACEMENTS.get(legacyType.get())))
+                .addFix(replaceHashtableField(tree, (NewClassTree) initializer, legacyType.get(), state))
+                .build();
+    }
+
+    /** Empty synchronized maps and sets have direct concurrent equivalents, lists do not. */
+    private static Optional<SuggestedFix> replaceSynchronizedWrapper(
+            MethodInvocationTree wrapper, String wrapperName, VisitorState state) {
+        ExpressionTree delegate = wrapper.getArguments().get(0);
+        if (!(delegate instanceof NewClassTree)
+                || !((NewClassTree) delegate).getArguments().isEmpty()
+                || ((NewClassTree) delegate).getClassBody() != null) {
+            return Optional.empty();
+        }
+        Type delegateType = ASTHelpers.getType(delegate);
+        String delegateName = state.getTypes().erasure(delegateType).tsym.getQualifiedName().toString();
+        SuggestedFix.Builder fix = SuggestedFix.builder();
+        if (wrapperName.equals("synchronizedMap") && delegateName.equals("java.util.HashMap")) {
+            String concurrentHashMap = MoreSuggestedFixes.qualifyType(state, fix, CONCURRENT_HASH_MAP);
+            return Optional.of(fix.replace(wrapper, "new " + concurrentHashMap + "<>()").build());
+        }
+        if (wrapperName.equals("synchronizedSet") && delegateName.equals("java.util.HashSet")) {
+            String concurrentHashMap = MoreSuggestedFixes.qualifyType(state, fix, CONCURRENT_HASH_MAP);
+            return Optional.of(fix.replace(wrapper, concurrentHashMap + ".newKeySet()").build());
+        }
+        return Optional.empty();
+    }
+
+    /** Hashtable fields declared as a {@link java.util.Map} may be replaced without changing any callers. */
+    private static Optional<SuggestedFix> replaceHashtableField(
+            VariableTree tree, NewClassTree initializer, String legacyType, VisitorState state) {
+        if (!legacyType.equals("java.util.Hashtable") || initializer.getArguments().size() > 1) {
+            return Optional.empty();
+        }
+        Types types = state.getTypes();
+        Type declaredType = types.erasure(ASTHelpers.getType(tree.getType()));
+        if (!types.isSubtype(types.erasure(state.getTypeFromString(CONCURRENT_HASH_MAP)), declaredType)
+                || declaredType.tsym.getQualifiedName().contentEquals(legacyType)) {
+            return Optional.empty();
+        }
+        SuggestedFix.Builder fix = SuggestedFix.builder();
+        String concurrentHashMap = MoreSuggestedFixes.qualifyType(state, fix, CONCURRENT_HASH_MAP);
+        return Optional.of(fix.replace(rawType(initializer.getIdentifier()), concurrentHashMap).build());
+    }
+
+    private static Tree rawType(Tree type) {
+        return type instanceof ParameterizedTypeTree ? ((ParameterizedTypeTree) type).getType() : type;
+    }
+
+    private static String simpleName(String qualifiedName) {
+        return qualifiedName.substring(qualifiedName.lastIndexOf('.') + 1);
+    }
+
+    /**
+     * References to a local variable. The variable escapes unless every reference is the receiver of a method
+     * call, or the target of an enhanced for loop, outside of any lambda or class which could capture it.
+     * Methods returning the legacy type itself, such as {@link StringBuffer#append(String)}, must be chained
+     * further or have their result ignored.
+     */
+    private static final class LocalUsages {
+        private final List<MethodInvocationTree> invocations = new ArrayList<>();
+        private boolean escapes;
+
+        static LocalUsages scan(Symbol symbol, String legacyType, VisitorState state) {
+            LocalUsages usages = new LocalUsages();
+            TreePath scope = state.getPath().getParentPath();
+            new TreePathScanner<Void, Void>() {
+                @Override
+                public Void visitIdentifier(IdentifierTree node, Void unused) {
+                    if (symbol.equals(ASTHelpers.getSymbol(node))) {
+                        usages.checkReference(getCurrentPath(), scope.getLeaf(), legacyType, state);
+                    }
+                    return super.visitIdentifier(node, unused);
+                }
+            }.scan(scope, null);
+            return usages;
+        }
+
+        private void checkReference(TreePath reference, Tree scope, String legacyType, VisitorState state) {
+            for (TreePath path = reference; path.getLeaf() != scope; path = path.getParentPath()) {
+                if (path.getLeaf() instanceof LambdaExpressionTree || path.getLeaf() instanceof ClassTree) {
+                    escapes = true;
+                    return;
+                }
+            }
+            Tree parent = reference.getParentPath().getLeaf();
+            if (parent instanceof EnhancedForLoopTree
+                    && ((EnhancedForLoopTree) parent).getExpression() == reference.getLeaf()) {
+                return;
+            }
+            TreePath receiver = reference;
+            while (receiver.getParentPath().getLeaf() instanceof MemberSelectTree
+                    && receiver.getParentPath().getParentPath().getLeaf() instanceof MethodInvocationTree) {
+                TreePath invocation = receiver.getParentPath().getParentPath();
+                invocations.add((MethodInvocationTree) invocation.getLeaf());
+                Type result = ASTHelpers.getType(invocation.getLeaf());
+                if (result == null
+                        || !state.getTypes().erasure(result).tsym.getQualifiedName().contentEquals(legacyType)) {
+                    return;
+                }
+                if (invocation.getParentPath().getLeaf() instanceof ExpressionStatementTree) {
+                    return;
+                }
+                receiver = invocation;
+            }
+            escapes = true;
+        }
+    }
+}
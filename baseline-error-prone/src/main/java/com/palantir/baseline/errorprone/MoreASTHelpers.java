@@ -22,7 +22,11 @@ import com.google.errorprone.VisitorState;
 import com.google.errorprone.util.ASTHelpers;
 import com.sun.source.tree.CatchTree;
 import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.IdentifierTree;
 import com.sun.source.tree.LambdaExpressionTree;
+import com.sun.source.tree.MemberSelectTree;
 import com.sun.source.tree.MethodInvocationTree;
 import com.sun.source.tree.MethodTree;
 import com.sun.source.tree.NewClassTree;
@@ -30,17 +34,24 @@ import com.sun.source.tree.ThrowTree;
 import com.sun.source.tree.Tree;
 import com.sun.source.tree.TryTree;
 import com.sun.source.tree.VariableTree;
+import com.sun.source.util.TreePath;
 import com.sun.source.util.TreeScanner;
+import com.sun.tools.javac.code.Flags;
 import com.sun.tools.javac.code.Symbol;
 import com.sun.tools.javac.code.Type;
 import com.sun.tools.javac.code.Types;
+import com.sun.tools.javac.util.Context;
 import java.util.ArrayDeque;
 import java.util.Comparator;
 import java.util.Deque;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import javax.annotation.Nullable;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.NestingKind;
 
 /** Utility functionality that does not exist in {@link com.google.errorprone.util.ASTHelpers}. */
 @SuppressWarnings("checkstyle:AbbreviationAsWordInName")
@@ -122,9 +133,23 @@ final class MoreASTHelpers {
      * https://github.com/google/error-prone/blob/8df5e4bbae8368b62ec96e4563fb1f448229f3e9/core/src/main/java/com/google/errorprone/bugpatterns/InterruptedExceptionSwallowed.java
      */
     static ImmutableSet<Type> getThrownExceptions(Tree tree, VisitorState state) {
-        ScanThrownTypes scanner = new ScanThrownTypes(state);
+        return getThrownExceptions(tree, state, ThrownExceptionsCache.get(state));
+    }
+
+    private static ImmutableSet<Type> getThrownExceptions(
+            @Nullable Tree tree, VisitorState state, ThrownExceptionsCache cache) {
+        if (tree == null) {
+            return ImmutableSet.of();
+        }
+        ImmutableSet<Type> cached = cache.thrownExceptions.get(tree);
+        if (cached != null) {
+            return cached;
+        }
+        ScanThrownTypes scanner = new ScanThrownTypes(state, cache);
         scanner.scan(tree, null);
-        return ImmutableSet.copyOf(scanner.getThrownTypes());
+        ImmutableSet<Type> result = ImmutableSet.copyOf(scanner.getThrownTypes());
+        cache.thrownExceptions.put(tree, result);
+        return result;
     }
 
     /** Returns an optional of the {@link AutoCloseable#close()} method on the provided symbol. */
@@ -150,16 +175,133 @@ final class MoreASTHelpers {
         return ImmutableList.of(type);
     }
 
+    /** Static fields may only be declared by top level and static nested classes, and not by interfaces. */
+    static boolean canDeclareStaticField(ClassTree classTree) {
+        Symbol.ClassSymbol symbol = ASTHelpers.getSymbol(classTree);
+        if (symbol == null
+                || symbol.getKind() == ElementKind.INTERFACE
+                || symbol.getKind() == ElementKind.ANNOTATION_TYPE) {
+            return false;
+        }
+        return symbol.getNestingKind() == NestingKind.TOP_LEVEL
+                || (symbol.getNestingKind() == NestingKind.MEMBER && symbol.isStatic());
+    }
+
+    /**
+     * Enum constants are initialized before any other static field of the enum, so a field hoisted into an enum may
+     * still be null when a constant's constructor calls the method it was hoisted from.
+     */
+    static boolean canHoistIntoStaticField(ClassTree classTree) {
+        Symbol.ClassSymbol symbol = ASTHelpers.getSymbol(classTree);
+        return canDeclareStaticField(classTree) && symbol.getKind() != ElementKind.ENUM;
+    }
+
+    /** Returns the first member declared in source, before which new fields may be inserted. */
+    static Optional<? extends Tree> firstDeclaredMember(ClassTree classTree) {
+        return classTree.getMembers().stream()
+                .filter(member -> !isGeneratedOrEnumConstant(member))
+                .findFirst();
+    }
+
+    private static boolean isGeneratedOrEnumConstant(Tree member) {
+        if (member instanceof MethodTree) {
+            return ASTHelpers.isGeneratedConstructor((MethodTree) member);
+        }
+        if (member instanceof VariableTree) {
+            Symbol symbol = ASTHelpers.getSymbol(member);
+            return symbol != null && (symbol.flags() & Flags.ENUM) != 0;
+        }
+        return false;
+    }
+
+    /** Expressions may refer to local or instance variables, which a static field initializer cannot access. */
+    static boolean isAccessibleFromStaticContext(ExpressionTree expression) {
+        Boolean accessible = new TreeScanner<Boolean, Void>() {
+            @Override
+            public Boolean visitIdentifier(IdentifierTree node, Void unused) {
+                Symbol symbol = ASTHelpers.getSymbol(node);
+                return !(symbol instanceof Symbol.VarSymbol) || symbol.isStatic();
+            }
+
+            @Override
+            public Boolean reduce(Boolean first, Boolean second) {
+                return (first == null || first) && (second == null || second);
+            }
+        }.scan(expression, null);
+        return accessible == null || accessible;
+    }
+
+    /** Instance fields have a value per object, so expressions reading them can't be evaluated once per class. */
+    static boolean readsInstanceField(ExpressionTree expression) {
+        Boolean reads = new TreeScanner<Boolean, Void>() {
+            @Override
+            public Boolean visitIdentifier(IdentifierTree node, Void unused) {
+                return isInstanceField(ASTHelpers.getSymbol(node));
+            }
+
+            @Override
+            public Boolean visitMemberSelect(MemberSelectTree node, Void unused) {
+                return isInstanceField(ASTHelpers.getSymbol(node))
+                        || Boolean.TRUE.equals(super.visitMemberSelect(node, unused));
+            }
+
+            @Override
+            public Boolean reduce(Boolean first, Boolean second) {
+                return Boolean.TRUE.equals(first) || Boolean.TRUE.equals(second);
+            }
+        }.scan(expression, null);
+        return Boolean.TRUE.equals(reads);
+    }
+
+    private static boolean isInstanceField(@Nullable Symbol symbol) {
+        return symbol != null && symbol.getKind() == ElementKind.FIELD && !symbol.isStatic();
+    }
+
+    /**
+     * Thrown exceptions of the trees in the compilation unit which is currently being analyzed. Results are computed
+     * bottom-up, so each try statement is scanned once no matter how deeply it's nested or how many checks ask
+     * about it.
+     */
+    private static final class ThrownExceptionsCache {
+        private static final Context.Key<ThrownExceptionsCache> KEY = new Context.Key<>();
+
+        private final Map<Tree, ImmutableSet<Type>> thrownExceptions = new IdentityHashMap<>();
+
+        @Nullable
+        private CompilationUnitTree compilationUnit;
+
+        static ThrownExceptionsCache get(VisitorState state) {
+            TreePath path = state.getPath();
+            if (path == null) {
+                // Without a compilation unit there's nothing to key results on, don't retain them.
+                return new ThrownExceptionsCache();
+            }
+            ThrownExceptionsCache cache = state.context.get(KEY);
+            if (cache == null) {
+                cache = new ThrownExceptionsCache();
+                state.context.put(KEY, cache);
+            }
+            CompilationUnitTree current = path.getCompilationUnit();
+            if (cache.compilationUnit != current) {
+                cache.thrownExceptions.clear();
+                cache.compilationUnit = current;
+            }
+            return cache;
+        }
+    }
+
     private static final class ScanThrownTypes extends TreeScanner<Void, Void> {
         private boolean inResources = false;
         private final Deque<Set<Type>> thrownTypes = new ArrayDeque<>();
 
         private final VisitorState state;
         private final Types types;
+        private final ThrownExceptionsCache cache;
 
-        ScanThrownTypes(VisitorState state) {
+        ScanThrownTypes(VisitorState state, ThrownExceptionsCache cache) {
             this.state = state;
             this.types = state.getTypes();
+            this.cache = cache;
             this.thrownTypes.push(new HashSet<>());
         }
 
@@ -178,23 +320,29 @@ final class MoreASTHelpers {
 
         @Override
         public Void visitTry(TryTree tree, Void unused) {
+            ImmutableSet<Type> cached = cache.thrownExceptions.get(tree);
+            if (cached != null) {
+                getThrownTypes().addAll(cached);
+                return null;
+            }
             thrownTypes.push(new HashSet<>());
             inResources = true;
             scan(tree.getResources(), null);
             inResources = false;
-            scan(tree.getBlock(), null);
+            // Blocks are scanned independently so their results may be reused, for example by CatchSpecificity
+            // analyzing nested try statements.
+            getThrownTypes().addAll(getThrownExceptions(tree.getBlock(), state, cache));
             scan(tree.getCatches(), null);
-            scan(tree.getFinallyBlock(), null);
-            Set<Type> fromBlock = thrownTypes.pop();
-            getThrownTypes().addAll(fromBlock);
+            getThrownTypes().addAll(getThrownExceptions(tree.getFinallyBlock(), state, cache));
+            Set<Type> fromTry = thrownTypes.pop();
             // The above getCatches scan isn't quite accurate when exceptions are thrown from earlier catch blocks.
             // It's necessary to prune exceptions thrown by resources and the main block, but doesn't adequately
             // capture those thrown from catch blocks.
             for (CatchTree catchTree : tree.getCatches()) {
-                ScanThrownTypes nestedScanner = new ScanThrownTypes(state);
-                catchTree.getBlock().accept(nestedScanner, null);
-                getThrownTypes().addAll(nestedScanner.getThrownTypes());
+                fromTry.addAll(getThrownExceptions(catchTree.getBlock(), state, cache));
             }
+            cache.thrownExceptions.put(tree, ImmutableSet.copyOf(fromTry));
+            getThrownTypes().addAll(fromTry);
             return null;
         }
 
@@ -16,11 +16,16 @@
 
 package com.palantir.baseline.errorprone;
 
+import com.google.common.collect.ImmutableSet;
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.matchers.Matcher;
 import com.google.errorprone.matchers.Matchers;
 import com.google.errorprone.util.ASTHelpers;
 import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodInvocationTree;
 import com.sun.source.tree.MethodTree;
 import com.sun.source.tree.ModifiersTree;
 import com.sun.source.tree.Tree;
@@ -118,5 +123,28 @@ final class MoreMatchers {
         };
     }
 
+    /**
+     * Matches method invocations whose simple method name is one of {@code names}. Unlike
+     * {@link com.google.errorprone.matchers.method.MethodMatchers}, only the syntax tree is inspected and no symbols or
+     * owner types are resolved, so this is meant to cheaply discard invocations which cannot possibly match before
+     * the complete matchers of a check are evaluated.
+     */
+    static Matcher<ExpressionTree> invocationNamed(String... names) {
+        ImmutableSet<String> candidates = ImmutableSet.copyOf(names);
+        return (tree, state) -> {
+            if (!(tree instanceof MethodInvocationTree)) {
+                return false;
+            }
+            ExpressionTree methodSelect = ((MethodInvocationTree) tree).getMethodSelect();
+            if (methodSelect instanceof MemberSelectTree) {
+                return candidates.contains(((MemberSelectTree) methodSelect).getIdentifier().toString());
+            }
+            if (methodSelect instanceof IdentifierTree) {
+                return candidates.contains(((IdentifierTree) methodSelect).getName().toString());
+            }
+            return false;
+        };
+    }
+
     private MoreMatchers() {}
 }
@@ -43,8 +43,9 @@ public final class OptionalOrElseMethodInvocation extends BugChecker implements
 
     private static final long serialVersionUID = 1L;
 
-    private static final Matcher<ExpressionTree> OR_ELSE_METHOD =
-            MethodMatchers.instanceMethod().onExactClass("java.util.Optional").named("orElse");
+    private static final Matcher<ExpressionTree> OR_ELSE_METHOD = Matchers.allOf(
+            MoreMatchers.invocationNamed("orElse"),
+            MethodMatchers.instanceMethod().onExactClass("java.util.Optional").named("orElse"));
 
     private static final Matcher<ExpressionTree> METHOD_INVOCATIONS = Matchers.anyOf(
             MethodInvocationMatcher.INSTANCE,
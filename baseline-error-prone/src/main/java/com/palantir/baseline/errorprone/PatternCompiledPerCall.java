@@ -0,0 +1,244 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.errorprone;
+
+import com.google.auto.service.AutoService;
+import com.google.common.base.CaseFormat;
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.BugPattern.SeverityLevel;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
+import com.google.errorprone.fixes.SuggestedFix;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.Matchers;
+import com.google.errorprone.matchers.method.MethodMatchers;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.LambdaExpressionTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreePathScanner;
+import com.sun.tools.javac.tree.JCTree;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+@AutoService(BugChecker.class)
+@BugPattern(
+        name = "PatternCompiledPerCall",
+        link = "https://github.com/palantir/gradle-baseline#baseline-error-prone-checks",
+        linkType = BugPattern.LinkType.CUSTOM,
+        providesFix = BugPattern.ProvidesFix.REQUIRES_HUMAN_ATTENTION,
+        severity = SeverityLevel.WARNING,
+        summary = "Constant regular expressions should be compiled once into a static final Pattern, rather than "
+                + "every time a method is called.")
+public final class PatternCompiledPerCall extends BugChecker implements MethodInvocationTreeMatcher {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String PATTERN = Pattern.class.getName();
+
+    private static final Matcher<ExpressionTree> PATTERN_COMPILE = Matchers.allOf(
+            MoreMatchers.invocationNamed("compile"),
+            MethodMatchers.staticMethod().onClass(PATTERN).named("compile"));
+
+    private static final Matcher<ExpressionTree> STRING_MATCHES = Matchers.allOf(
+            MoreMatchers.invocationNamed("matches"),
+            MethodMatchers.instanceMethod()
+                    .onExactClass(String.class.getName())
+                    .named("matches")
+                    .withParameters(String.class.getName()));
+
+    private static final Matcher<ExpressionTree> STRING_REPLACE = Matchers.allOf(
+            MoreMatchers.invocationNamed("replaceAll", "replaceFirst"),
+            MethodMatchers.instanceMethod()
+                    .onExactClass(String.class.getName())
+                    .withNameMatching(Pattern.compile("replaceAll|replaceFirst"))
+                    .withParameters(String.class.getName(), String.class.getName()));
+
+    private static final Matcher<ExpressionTree> STRING_SPLIT = Matchers.allOf(
+            MoreMatchers.invocationNamed("split"),
+            MethodMatchers.instanceMethod().onExactClass(String.class.getName()).named("split"));
+
+    private static final Matcher<ExpressionTree> REGEX_INVOCATION =
+            Matchers.anyOf(PATTERN_COMPILE, STRING_MATCHES, STRING_REPLACE, STRING_SPLIT);
+
+    // Single characters which String.split handles without compiling a Pattern
+    private static final String SPLIT_METACHARACTERS = ".$|()[{^?*+\\";
+
+    @Override
+    public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+        if (!compilesConstantRegex(tree, state)
+                || !isCompiledPerCall(state)
+                || patternArguments(tree, state).stream().anyMatch(MoreASTHelpers::readsInstanceField)) {
+            return Description.NO_MATCH;
+        }
+        return buildDescription(tree)
+                .addFix(hoistPattern(tree, state))
+                .build();
+    }
+
+    private static boolean compilesConstantRegex(MethodInvocationTree tree, VisitorState state) {
+        if (!REGEX_INVOCATION.matches(tree, state)) {
+            return false;
+        }
+        String regex = ASTHelpers.constValue(tree.getArguments().get(0), String.class);
+        return regex != null && !(STRING_SPLIT.matches(tree, state) && isSplitFastPath(regex));
+    }
+
+    /** Invocations in methods and lambdas are evaluated repeatedly, unlike static initializers. */
+    private static boolean isCompiledPerCall(VisitorState state) {
+        for (Tree enclosing : state.getPath()) {
+            if (enclosing instanceof MethodTree || enclosing instanceof LambdaExpressionTree) {
+                return true;
+            }
+            if (enclosing instanceof ClassTree) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /** Mirrors the fast path in {@link String#split(String, int)} which avoids compiling a pattern. */
+    private static boolean isSplitFastPath(String regex) {
+        if (regex.length() == 1) {
+            return SPLIT_METACHARACTERS.indexOf(regex.charAt(0)) < 0 && !Character.isSurrogate(regex.charAt(0));
+        }
+        if (regex.length() == 2 && regex.charAt(0) == '\\') {
+            char escaped = regex.charAt(1);
+            boolean asciiLetterOrDigit = (escaped >= '0' && escaped <= '9')
+                    || (escaped >= 'a' && escaped <= 'z')
+                    || (escaped >= 'A' && escaped <= 'Z');
+            return !asciiLetterOrDigit && !Character.isSurrogate(escaped);
+        }
+        return false;
+    }
+
+    private static Optional<SuggestedFix> hoistPattern(MethodInvocationTree tree, VisitorState state) {
+        ClassTree enclosingClass = ASTHelpers.findEnclosingNode(state.getPath(), ClassTree.class);
+        if (enclosingClass == null || !MoreASTHelpers.canHoistIntoStaticField(enclosingClass)) {
+            return Optional.empty();
+        }
+        List<? extends ExpressionTree> arguments = tree.getArguments();
+        boolean patternCompile = PATTERN_COMPILE.matches(tree, state);
+        List<? extends ExpressionTree> patternArguments = patternArguments(tree, state);
+        if (!patternArguments.stream().allMatch(MoreASTHelpers::isAccessibleFromStaticContext)) {
+            return Optional.empty();
+        }
+        Optional<? extends Tree> firstMember = MoreASTHelpers.firstDeclaredMember(enclosingClass);
+        if (!firstMember.isPresent()) {
+            return Optional.empty();
+        }
+
+        SuggestedFix.Builder fix = SuggestedFix.builder();
+        String patternType = MoreSuggestedFixes.qualifyType(state, fix, PATTERN);
+        String fieldName = fieldName(tree, enclosingClass, state);
+        String patternArgumentsSource =
+                patternArguments.stream().map(state::getSourceForNode).collect(Collectors.joining(", "));
+        fix.prefixWith(
+                firstMember.get(),
+                String.format(
+                        "private static final %s %s = %s.compile(%s);\n",
+                        patternType, fieldName, patternType, patternArgumentsSource));
+
+        if (patternCompile) {
+            return Optional.of(fix.replace(tree, fieldName).build());
+        }
+        String receiver = state.getSourceForNode(ASTHelpers.getReceiver(tree));
+        String methodName = ASTHelpers.getSymbol(tree).getSimpleName().toString();
+        String replacement;
+        if (STRING_SPLIT.matches(tree, state)) {
+            replacement = arguments.size() == 1
+                    ? String.format("%s.split(%s)", fieldName, receiver)
+                    : String.format("%s.split(%s, %s)", fieldName, receiver, state.getSourceForNode(arguments.get(1)));
+        } else if (STRING_MATCHES.matches(tree, state)) {
+            replacement = String.format("%s.matcher(%s).matches()", fieldName, receiver);
+        } else {
+            replacement = String.format(
+                    "%s.matcher(%s).%s(%s)",
+                    fieldName, receiver, methodName, state.getSourceForNode(arguments.get(1)));
+        }
+        return Optional.of(fix.replace(tree, replacement).build());
+    }
+
+    /** Arguments which are passed through to {@link Pattern#compile}, as opposed to the input being matched. */
+    private static List<? extends ExpressionTree> patternArguments(MethodInvocationTree tree, VisitorState state) {
+        List<? extends ExpressionTree> arguments = tree.getArguments();
+        return PATTERN_COMPILE.matches(tree, state) ? arguments : arguments.subList(0, 1);
+    }
+
+    /**
+     * Names the field after the method (or field) containing the invocation. Regular expressions across the class
+     * which share a name, such as those in overloads of a method, are numbered in source order, skipping names which
+     * are already declared, so that fixes for each of them don't collide.
+     */
+    private static String fieldName(MethodInvocationTree tree, ClassTree enclosingClass, VisitorState state) {
+        String baseName = baseName(state.getPath());
+        int treeStart = ((JCTree) tree).getStartPosition();
+        int[] preceding = {0};
+        TreePath classPath = TreePath.getPath(state.getPath().getCompilationUnit(), enclosingClass);
+        new TreePathScanner<Void, Void>() {
+            @Override
+            public Void visitMethodInvocation(MethodInvocationTree node, Void unused) {
+                if (((JCTree) node).getStartPosition() < treeStart
+                        && compilesConstantRegex(node, state)
+                        && baseName(getCurrentPath()).equals(baseName)) {
+                    preceding[0]++;
+                }
+                return super.visitMethodInvocation(node, unused);
+            }
+        }.scan(classPath, null);
+
+        Set<String> memberNames = enclosingClass.getMembers().stream()
+                .filter(member -> member instanceof VariableTree)
+                .map(member -> ((VariableTree) member).getName().toString())
+                .collect(Collectors.toSet());
+        int available = 0;
+        for (int suffix = 1; ; suffix++) {
+            String name = suffix == 1 ? baseName : baseName + "_" + suffix;
+            if (!memberNames.contains(name) && available++ == preceding[0]) {
+                return name;
+            }
+        }
+    }
+
+    private static String baseName(TreePath invocation) {
+        for (TreePath path = invocation; path != null; path = path.getParentPath()) {
+            Tree leaf = path.getLeaf();
+            if (leaf instanceof MethodTree) {
+                String methodName = ((MethodTree) leaf).getName().toString();
+                return methodName.equals("<init>") ? "PATTERN" : upperSnake(methodName) + "_PATTERN";
+            }
+            if (leaf instanceof VariableTree && path.getParentPath().getLeaf() instanceof ClassTree) {
+                return upperSnake(((VariableTree) leaf).getName().toString()) + "_PATTERN";
+            }
+        }
+        return "PATTERN";
+    }
+
+    private static String upperSnake(String name) {
+        return CaseFormat.LOWER_CAMEL.to(CaseFormat.UPPER_UNDERSCORE, name);
+    }
+}
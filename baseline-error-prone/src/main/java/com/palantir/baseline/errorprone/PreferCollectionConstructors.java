@@ -235,6 +235,22 @@ public final class PreferCollectionConstructors extends BugChecker implements Bu
                     .put(NEW_IDENTITY_HASH_MAP, IdentityHashMap.class)
                     .build();
 
+    private static final Matcher<ExpressionTree> FACTORY_METHOD_NAME = MoreMatchers.invocationNamed(
+            "newArrayList",
+            "newArrayListWithCapacity",
+            "newLinkedList",
+            "newCopyOnWriteArrayList",
+            "newConcurrentMap",
+            "newHashMap",
+            "newTreeMap",
+            "newCopyOnWriteArraySet",
+            "newLinkedHashSet",
+            "newTreeSet",
+            "newHashSet",
+            "newLinkedHashMap",
+            "newEnumMap",
+            "newIdentityHashMap");
+
     private static final Set<Matcher<ExpressionTree>> requiresCollectionArg = ImmutableSet.of(
             NEW_ARRAY_LIST_WITH_ITERABLE,
             NEW_LINKED_LIST_WITH_ITERABLE,
@@ -246,6 +262,10 @@ public final class PreferCollectionConstructors extends BugChecker implements Bu
 
     @Override
     public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+        // Avoid evaluating every factory matcher against invocations which can't possibly match
+        if (!FACTORY_METHOD_NAME.matches(tree, state)) {
+            return Description.NO_MATCH;
+        }
 
         Class<?> collectionClass = findCollectionClassToUse(state, tree);
         if (collectionClass == null) {
@@ -24,6 +24,7 @@ import com.google.errorprone.bugpatterns.BugChecker;
 import com.google.errorprone.fixes.SuggestedFix;
 import com.google.errorprone.matchers.Description;
 import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.Matchers;
 import com.google.errorprone.matchers.method.MethodMatchers;
 import com.sun.source.tree.ExpressionTree;
 import com.sun.source.tree.MethodInvocationTree;
@@ -46,10 +47,12 @@ public final class PreferListsPartition extends BugChecker implements BugChecker
 
     private static final String ERROR_MESSAGE = "Prefer Lists.partition";
 
-    private static final Matcher<ExpressionTree> ITERABLES_PARTITION_MATCHER = MethodMatchers.staticMethod()
-            .onClass("com.google.common.collect.Iterables")
-            .named("partition")
-            .withParameters("java.lang.Iterable", "int");
+    private static final Matcher<ExpressionTree> ITERABLES_PARTITION_MATCHER = Matchers.allOf(
+            MoreMatchers.invocationNamed("partition"),
+            MethodMatchers.staticMethod()
+                    .onClass("com.google.common.collect.Iterables")
+                    .named("partition")
+                    .withParameters("java.lang.Iterable", "int"));
 
     private static final Matcher<Tree> LIST_MATCHER = MoreMatchers.isSubtypeOf("java.util.List");
 
@@ -25,6 +25,7 @@ import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
 import com.google.errorprone.matchers.CompileTimeConstantExpressionMatcher;
 import com.google.errorprone.matchers.Description;
 import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.Matchers;
 import com.google.errorprone.matchers.method.MethodMatchers;
 import com.sun.source.tree.ExpressionTree;
 import com.sun.source.tree.MethodInvocationTree;
@@ -42,9 +43,11 @@ public final class Slf4jConstantLogMessage extends BugChecker implements MethodI
 
     private static final long serialVersionUID = 1L;
 
-    private static final Matcher<ExpressionTree> LOG_METHOD = MethodMatchers.instanceMethod()
-            .onDescendantOf("org.slf4j.Logger")
-            .withNameMatching(Pattern.compile("trace|debug|info|warn|error"));
+    private static final Matcher<ExpressionTree> LOG_METHOD = Matchers.allOf(
+            MoreMatchers.invocationNamed("trace", "debug", "info", "warn", "error"),
+            MethodMatchers.instanceMethod()
+                    .onDescendantOf("org.slf4j.Logger")
+                    .withNameMatching(Pattern.compile("trace|debug|info|warn|error")));
 
     private static final Matcher<ExpressionTree> MARKER = MoreMatchers.isSubtypeOf("org.slf4j.Marker");
 
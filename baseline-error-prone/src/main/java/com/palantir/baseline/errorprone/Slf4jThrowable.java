@@ -48,9 +48,11 @@ public final class Slf4jThrowable extends BugChecker implements MethodInvocation
 
     private static final Matcher<ExpressionTree> THROWABLE = MoreMatchers.isSubtypeOf(Throwable.class);
 
-    private static final Matcher<ExpressionTree> LOG_METHOD = MethodMatchers.instanceMethod()
-            .onDescendantOf("org.slf4j.Logger")
-            .withNameMatching(Pattern.compile("trace|debug|info|warn|error"));
+    private static final Matcher<ExpressionTree> LOG_METHOD = Matchers.allOf(
+            MoreMatchers.invocationNamed("trace", "debug", "info", "warn", "error"),
+            MethodMatchers.instanceMethod()
+                    .onDescendantOf("org.slf4j.Logger")
+                    .withNameMatching(Pattern.compile("trace|debug|info|warn|error")));
 
     private static final Matcher<ExpressionTree> CORRECT_THROWABLE =
             Matchers.methodInvocation(LOG_METHOD, ChildMultiMatcher.MatchType.LAST, THROWABLE);
@@ -173,6 +173,10 @@ public final class StrictUnusedVariable extends BugChecker implements BugChecker
         // Map of symbols to variable declarations. Initially this is a map of all of the local variable
         // and fields. As we go we remove those variables which are used.
         Map<Symbol, TreePath> unusedElements = variableFinder.unusedElements;
+        if (unusedElements.isEmpty()) {
+            // Nothing can be reported, so avoid scanning the compilation unit for usages.
+            return Description.NO_MATCH;
+        }
 
         // Whether a symbol should only be checked for reassignments (e.g. public methods' parameters).
         Set<Symbol> onlyCheckForReassignments = variableFinder.onlyCheckForReassignments;
@@ -242,7 +246,10 @@ public final class StrictUnusedVariable extends BugChecker implements BugChecker
     }
 
     private void checkUsedVariables(VisitorState state, VariableFinder variableFinder) {
-        VariableUsage variableUsage = new VariableUsage();
+        if (variableFinder.exemptedVariables.isEmpty()) {
+            return;
+        }
+        VariableUsage variableUsage = new VariableUsage(variableFinder.exemptedVariables.keySet());
         variableUsage.scan(state.getPath(), null);
         variableFinder.exemptedVariables.entrySet().forEach(entry -> {
             List<TreePath> usageSites = variableUsage.usageSites.get(entry.getKey());
@@ -983,26 +990,39 @@ public final class StrictUnusedVariable extends BugChecker implements BugChecker
         }
     }
 
+    /** Collects the usage sites of the given symbols, ignoring all others. */
     static class VariableUsage extends TreePathScanner<Void, Void> {
         public final ListMultimap<Symbol, TreePath> usageSites = ArrayListMultimap.create();
 
+        private final Set<Symbol> symbols;
+
+        VariableUsage(Set<Symbol> symbols) {
+            this.symbols = symbols;
+        }
+
         @Override
         public Void visitVariable(VariableTree tree, Void unused) {
-            usageSites.put(getSymbol(tree), getCurrentPath());
+            recordUsage(getSymbol(tree));
             return super.visitVariable(tree, null);
         }
 
         @Override
         public Void visitIdentifier(IdentifierTree tree, Void unused) {
-            usageSites.put(getSymbol(tree), getCurrentPath());
+            recordUsage(getSymbol(tree));
             return super.visitIdentifier(tree, null);
         }
 
         @Override
         public Void visitMemberSelect(MemberSelectTree memberSelectTree, Void unused) {
-            usageSites.put(getSymbol(memberSelectTree), getCurrentPath());
+            recordUsage(getSymbol(memberSelectTree));
             return super.visitMemberSelect(memberSelectTree, null);
         }
+
+        private void recordUsage(@Nullable Symbol symbol) {
+            if (symbol != null && symbols.contains(symbol)) {
+                usageSites.put(symbol, getCurrentPath());
+            }
+        }
     }
 
     interface UnusedSpec {
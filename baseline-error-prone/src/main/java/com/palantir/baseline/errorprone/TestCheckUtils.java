@@ -21,9 +21,14 @@ import com.google.errorprone.matchers.JUnitMatchers;
 import com.google.errorprone.matchers.Matcher;
 import com.google.errorprone.matchers.Matchers;
 import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
 import com.sun.source.tree.ImportTree;
 import com.sun.source.tree.Tree;
 import com.sun.source.util.TreePath;
+import com.sun.tools.javac.util.Context;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
 
 final class TestCheckUtils {
 
@@ -31,18 +36,19 @@ final class TestCheckUtils {
         // utility class
     }
 
-    /** Note that this is a relatively expensive check and should be executed after simpler validation. */
+    /**
+     * Note that the first call for a class is relatively expensive and should be executed after simpler validation.
+     * Results are cached for the compilation unit being analyzed, so repeated calls from any check are cheap.
+     */
     static boolean isTestCode(VisitorState state) {
         TreePath path = state.getPath();
+        TestCodeCache cache = TestCodeCache.get(state.context, path.getCompilationUnit());
         for (Tree ancestor : path) {
-            if (ancestor instanceof ClassTree && hasTestCases.matches((ClassTree) ancestor, state)) {
+            if (ancestor instanceof ClassTree && cache.hasTestCases((ClassTree) ancestor, state)) {
                 return true;
             }
         }
-        return state.getPath().getCompilationUnit().getImports().stream()
-                .map(ImportTree::getQualifiedIdentifier)
-                .map(Object::toString)
-                .anyMatch(TestCheckUtils::isTestImport);
+        return cache.hasTestImports();
     }
 
     private static final Matcher<ClassTree> hasJUnit5TestCases = Matchers.hasMethod(Matchers.anyOf(
@@ -52,6 +58,52 @@ final class TestCheckUtils {
     private static final Matcher<ClassTree> hasTestCases =
             Matchers.anyOf(JUnitMatchers.hasJUnit4TestCases, hasJUnit5TestCases);
 
+    /** Classification of the classes and imports of the compilation unit which is currently being analyzed. */
+    private static final class TestCodeCache {
+        private static final Context.Key<TestCodeCache> KEY = new Context.Key<>();
+
+        private final Map<ClassTree, Boolean> classHasTestCases = new IdentityHashMap<>();
+
+        @Nullable
+        private CompilationUnitTree compilationUnit;
+
+        @Nullable
+        private Boolean hasTestImports;
+
+        static TestCodeCache get(Context context, CompilationUnitTree compilationUnit) {
+            TestCodeCache cache = context.get(KEY);
+            if (cache == null) {
+                cache = new TestCodeCache();
+                context.put(KEY, cache);
+            }
+            if (cache.compilationUnit != compilationUnit) {
+                cache.classHasTestCases.clear();
+                cache.hasTestImports = null;
+                cache.compilationUnit = compilationUnit;
+            }
+            return cache;
+        }
+
+        boolean hasTestCases(ClassTree classTree, VisitorState state) {
+            Boolean result = classHasTestCases.get(classTree);
+            if (result == null) {
+                result = TestCheckUtils.hasTestCases.matches(classTree, state);
+                classHasTestCases.put(classTree, result);
+            }
+            return result;
+        }
+
+        boolean hasTestImports() {
+            if (hasTestImports == null) {
+                hasTestImports = compilationUnit.getImports().stream()
+                        .map(ImportTree::getQualifiedIdentifier)
+                        .map(Object::toString)
+                        .anyMatch(TestCheckUtils::isTestImport);
+            }
+            return hasTestImports;
+        }
+    }
+
     private static boolean isTestImport(String qualifiedName) {
         return qualifiedName.startsWith("org.junit.") // junit 4 and 5
                 || qualifiedName.startsWith("junit.") // junit 3
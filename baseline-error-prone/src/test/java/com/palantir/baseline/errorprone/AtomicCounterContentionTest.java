@@ -0,0 +1,128 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.errorprone;
+
+import com.google.errorprone.CompilationTestHelper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class AtomicCounterContentionTest {
+
+    private CompilationTestHelper compilationHelper;
+    private RefactoringValidator refactoringTestHelper;
+
+    @BeforeEach
+    public void before() {
+        compilationHelper = CompilationTestHelper.newInstance(AtomicCounterContention.class, getClass());
+        refactoringTestHelper = RefactoringValidator.of(new AtomicCounterContention(), getClass());
+    }
+
+    @Test
+    public void testCounters() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import java.util.concurrent.atomic.AtomicInteger;",
+                        "import java.util.concurrent.atomic.AtomicLong;",
+                        "class Test {",
+                        "  // BUG: Diagnostic contains: should be LongAdders",
+                        "  private final AtomicLong requests = new AtomicLong();",
+                        "  // BUG: Diagnostic contains: should be LongAdders",
+                        "  private final AtomicInteger errors = new AtomicInteger(0);",
+                        "  void f(int count) {",
+                        "    requests.incrementAndGet();",
+                        "    this.errors.getAndAdd(count);",
+                        "  }",
+                        "  long requests() {",
+                        "    return requests.get();",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testNegative() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import java.util.concurrent.atomic.AtomicLong;",
+                        "class Test {",
+                        "  private final AtomicLong resultUsed = new AtomicLong();",
+                        "  private final AtomicLong compareAndSet = new AtomicLong();",
+                        "  private final AtomicLong escapes = new AtomicLong();",
+                        "  private final AtomicLong nonZero = new AtomicLong(1);",
+                        "  private final AtomicLong readOnly = new AtomicLong();",
+                        "  final AtomicLong notPrivate = new AtomicLong();",
+                        "  long f() {",
+                        "    compareAndSet.incrementAndGet();",
+                        "    compareAndSet.compareAndSet(1, 2);",
+                        "    escapes.incrementAndGet();",
+                        "    g(escapes);",
+                        "    nonZero.incrementAndGet();",
+                        "    notPrivate.incrementAndGet();",
+                        "    return resultUsed.incrementAndGet() + readOnly.get();",
+                        "  }",
+                        "  void g(AtomicLong value) {}",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testFix() {
+        refactoringTestHelper
+                .addInputLines(
+                        "Test.java",
+                        "import java.util.concurrent.atomic.AtomicInteger;",
+                        "import java.util.concurrent.atomic.AtomicLong;",
+                        "class Test {",
+                        "  private final AtomicLong requests = new AtomicLong();",
+                        "  private final AtomicInteger errors = new AtomicInteger(0);",
+                        "  void f(int count) {",
+                        "    requests.incrementAndGet();",
+                        "    this.errors.getAndAdd(count);",
+                        "    errors.decrementAndGet();",
+                        "  }",
+                        "  long requests() {",
+                        "    return requests.get();",
+                        "  }",
+                        "  int errors() {",
+                        "    return errors.get();",
+                        "  }",
+                        "}")
+                .addOutputLines(
+                        "Test.java",
+                        "import java.util.concurrent.atomic.AtomicInteger;",
+                        "import java.util.concurrent.atomic.AtomicLong;",
+                        "import java.util.concurrent.atomic.LongAdder;",
+                        "class Test {",
+                        "  private final LongAdder requests = new LongAdder();",
+                        "  private final LongAdder errors = new LongAdder();",
+                        "  void f(int count) {",
+                        "    requests.increment();",
+                        "    this.errors.add(count);",
+                        "    errors.decrement();",
+                        "  }",
+                        "  long requests() {",
+                        "    return requests.sum();",
+                        "  }",
+                        "  int errors() {",
+                        "    return errors.intValue();",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+}
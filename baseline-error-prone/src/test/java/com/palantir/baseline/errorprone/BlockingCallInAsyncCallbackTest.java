@@ -0,0 +1,149 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.errorprone;
+
+import com.google.errorprone.CompilationTestHelper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class BlockingCallInAsyncCallbackTest {
+
+    private CompilationTestHelper compilationHelper;
+
+    @BeforeEach
+    public void before() {
+        compilationHelper = CompilationTestHelper.newInstance(BlockingCallInAsyncCallback.class, getClass());
+    }
+
+    @Test
+    public void testCompletableFutureStages() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import com.google.common.util.concurrent.MoreExecutors;",
+                        "import com.google.common.util.concurrent.Uninterruptibles;",
+                        "import java.util.concurrent.BlockingQueue;",
+                        "import java.util.concurrent.CompletableFuture;",
+                        "import java.util.concurrent.TimeUnit;",
+                        "class Test {",
+                        "  void f(CompletableFuture<String> future, CompletableFuture<String> other,",
+                        "      BlockingQueue<String> queue) {",
+                        "    // BUG: Diagnostic contains: 'other.join' may block within a 'future.thenApply' callback",
+                        "    future.thenApply(value -> value + other.join());",
+                        "    future.thenCompose(value -> {",
+                        "      // BUG: Diagnostic contains: 'Uninterruptibles.sleepUninterruptibly' may block",
+                        "      Uninterruptibles.sleepUninterruptibly(1, TimeUnit.SECONDS);",
+                        "      return other;",
+                        "    });",
+                        "    future.whenComplete((value, throwable) ->",
+                        "        // BUG: Diagnostic contains: within a 'future.whenComplete' callback",
+                        "        Uninterruptibles.putUninterruptibly(queue, value));",
+                        "    future.thenAcceptAsync(value -> {",
+                        "      try {",
+                        "        // BUG: Diagnostic contains: 'queue.put' may block within a 'future.thenAcceptAsync'",
+                        "        queue.put(value);",
+                        "      } catch (InterruptedException e) {",
+                        "        Thread.currentThread().interrupt();",
+                        "      }",
+                        "    }, MoreExecutors.directExecutor());",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testGuavaDirectExecutor() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import com.google.common.util.concurrent.FutureCallback;",
+                        "import com.google.common.util.concurrent.Futures;",
+                        "import com.google.common.util.concurrent.ListenableFuture;",
+                        "import com.google.common.util.concurrent.MoreExecutors;",
+                        "import java.util.concurrent.Future;",
+                        "class Test {",
+                        "  void f(ListenableFuture<String> future, Future<String> other) {",
+                        "    Futures.transform(future, value -> {",
+                        "      try {",
+                        "        // BUG: Diagnostic contains: 'other.get' may block within a 'Futures.transform'",
+                        "        return value + other.get();",
+                        "      } catch (Exception e) {",
+                        "        throw new RuntimeException(e);",
+                        "      }",
+                        "    }, MoreExecutors.directExecutor());",
+                        "    Futures.addCallback(future, new FutureCallback<String>() {",
+                        "      @Override",
+                        "      public void onSuccess(String result) {",
+                        "        try {",
+                        "          // BUG: Diagnostic contains: within a 'Futures.addCallback' callback",
+                        "          Thread.sleep(1);",
+                        "        } catch (InterruptedException e) {",
+                        "          Thread.currentThread().interrupt();",
+                        "        }",
+                        "      }",
+                        "",
+                        "      @Override",
+                        "      public void onFailure(Throwable throwable) {}",
+                        "    }, MoreExecutors.directExecutor());",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testNegative() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import com.google.common.util.concurrent.Futures;",
+                        "import com.google.common.util.concurrent.ListenableFuture;",
+                        "import java.util.concurrent.CompletableFuture;",
+                        "import java.util.concurrent.Executor;",
+                        "class Test {",
+                        "  String f(CompletableFuture<String> future, CompletableFuture<String> other,",
+                        "      ListenableFuture<String> listenable, Executor executor) {",
+                        "    future.thenApplyAsync(value -> value + other.join(), executor);",
+                        "    Futures.transform(listenable, value -> value + other.join(), executor);",
+                        "    executor.execute(() -> other.join());",
+                        "    return future.join();",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testCompletedFutures() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import java.util.concurrent.CompletableFuture;",
+                        "class Test {",
+                        "  void f(CompletableFuture<String> a, CompletableFuture<String> b,",
+                        "      CompletableFuture<String> c) {",
+                        "    CompletableFuture.allOf(a, b).thenApply(v -> a.join() + b.join());",
+                        "    CompletableFuture.allOf(a, b).thenApply(v -> a.join()).thenAccept(v -> b.join());",
+                        "    a.thenCombine(b, (x, y) -> x + y).thenRun(() -> b.join());",
+                        "    a.thenRun(() -> a.join());",
+                        "    // BUG: Diagnostic contains: 'c.join' may block within a 'CompletableFuture.allOf(a, b)",
+                        "    CompletableFuture.allOf(a, b).thenApply(v -> c.join());",
+                        "    // BUG: Diagnostic contains: 'b.join' may block within a 'a.applyToEither'",
+                        "    a.applyToEither(b, x -> b.join());",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+}
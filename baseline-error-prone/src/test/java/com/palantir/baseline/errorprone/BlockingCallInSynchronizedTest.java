@@ -0,0 +1,121 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.errorprone;
+
+import com.google.errorprone.CompilationTestHelper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class BlockingCallInSynchronizedTest {
+
+    private CompilationTestHelper compilationHelper;
+
+    @BeforeEach
+    public void before() {
+        compilationHelper = CompilationTestHelper.newInstance(BlockingCallInSynchronized.class, getClass());
+    }
+
+    @Test
+    public void testSynchronizedBlock() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import java.io.InputStream;",
+                        "import java.sql.Connection;",
+                        "import java.util.concurrent.Future;",
+                        "class Test {",
+                        "  private final Object lock = new Object();",
+                        "  void f(InputStream in, Connection conn, Future<?> future) throws Exception {",
+                        "    synchronized (lock) {",
+                        "      // BUG: Diagnostic contains: 'in.read' may block within a synchronized block",
+                        "      in.read();",
+                        "      // BUG: Diagnostic contains: 'conn.createStatement().execute' may block",
+                        "      conn.createStatement().execute(\"SELECT 1\");",
+                        "      // BUG: Diagnostic contains: 'Thread.sleep' may block",
+                        "      Thread.sleep(1);",
+                        "      // BUG: Diagnostic contains: 'future.get' may block",
+                        "      future.get();",
+                        "      // BUG: Diagnostic contains: 'lock.wait' within a synchronized block pins",
+                        "      lock.wait();",
+                        "    }",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testSynchronizedMethod() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "class Test {",
+                        "  synchronized void f() throws InterruptedException {",
+                        "    // BUG: Diagnostic contains: may block within a synchronized method",
+                        "    Thread.sleep(1);",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testUserDefinedWait() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "class Test {",
+                        "  private final Object lock = new Object();",
+                        "  void wait(String reason) {}",
+                        "  void f() {",
+                        "    synchronized (lock) {",
+                        "      wait(\"reason\");",
+                        "    }",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testNegative() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import java.io.ByteArrayOutputStream;",
+                        "import java.io.StringWriter;",
+                        "import java.util.concurrent.Executor;",
+                        "class Test {",
+                        "  private final Object lock = new Object();",
+                        "  void f(Executor executor, ByteArrayOutputStream bytes, StringWriter writer)",
+                        "      throws InterruptedException {",
+                        "    Thread.sleep(1);",
+                        "    synchronized (lock) {",
+                        "      lock.notifyAll();",
+                        "      bytes.write(1);",
+                        "      writer.write(\"a\");",
+                        "      writer.flush();",
+                        "      executor.execute(() -> {",
+                        "        try {",
+                        "          Thread.sleep(1);",
+                        "        } catch (InterruptedException e) {",
+                        "          Thread.currentThread().interrupt();",
+                        "        }",
+                        "      });",
+                        "    }",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+}
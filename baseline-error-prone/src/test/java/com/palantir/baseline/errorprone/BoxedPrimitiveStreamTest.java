@@ -0,0 +1,277 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.errorprone;
+
+import com.google.errorprone.BugCheckerRefactoringTestHelper;
+import com.google.errorprone.CompilationTestHelper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class BoxedPrimitiveStreamTest {
+
+    private CompilationTestHelper compilationHelper;
+    private RefactoringValidator refactoringTestHelper;
+
+    @BeforeEach
+    public void before() {
+        compilationHelper = CompilationTestHelper.newInstance(BoxedPrimitiveStream.class, getClass());
+        refactoringTestHelper = RefactoringValidator.of(new BoxedPrimitiveStream(), getClass());
+    }
+
+    @Test
+    public void testBoxedStreams() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import java.util.Comparator;",
+                        "import java.util.List;",
+                        "import java.util.stream.Collectors;",
+                        "import java.util.stream.IntStream;",
+                        "class Test {",
+                        "  void f(List<List<String>> lists, List<Long> longs, List<Double> doubles) {",
+                        "    // BUG: Diagnostic contains: use mapToInt(...).sum() instead",
+                        "    int a = lists.stream().map(x -> x.size()).reduce(0, Integer::sum);",
+                        "    // BUG: Diagnostic contains: use mapToLong(...).sum() instead",
+                        "    long b = longs.stream().reduce(0L, (x, y) -> x + y);",
+                        "    // BUG: Diagnostic contains: collect(summingInt(...)) boxes its result",
+                        "    int c = lists.stream().collect(Collectors.summingInt(List::size));",
+                        "    // BUG: Diagnostic contains: Stream<Long>.max compares boxed values",
+                        "    long d = longs.stream().max(Comparator.naturalOrder()).get();",
+                        "    // BUG: Diagnostic contains: returns NaN rather than ignoring it",
+                        "    System.out.println(doubles.stream().min(Double::compare));",
+                        "    // BUG: Diagnostic contains: use the IntStream directly",
+                        "    int e = IntStream.range(0, 10).boxed().mapToInt(Integer::intValue).sum();",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testNegative() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import java.util.Comparator;",
+                        "import java.util.List;",
+                        "import java.util.stream.IntStream;",
+                        "class Test {",
+                        "  void f(List<Integer> ints, List<String> strings) {",
+                        "    int a = ints.stream().reduce(1, (x, y) -> x * y);",
+                        "    int b = ints.stream().reduce(0, Integer::max);",
+                        "    String c = strings.stream().max(Comparator.naturalOrder()).get();",
+                        "    int d = ints.stream().max(Comparator.reverseOrder()).get();",
+                        "    int e = IntStream.range(0, 10).map(x -> x * 2).sum();",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testFixMapReduce() {
+        refactoringTestHelper
+                .addInputLines(
+                        "Test.java",
+                        "import java.util.List;",
+                        "class Test {",
+                        "  int f(List<List<String>> lists) {",
+                        "    return lists.stream()",
+                        "        .map(x -> x.size())",
+                        "        .reduce(0, Integer::sum);",
+                        "  }",
+                        "}")
+                .addOutputLines(
+                        "Test.java",
+                        "import java.util.List;",
+                        "class Test {",
+                        "  int f(List<List<String>> lists) {",
+                        "    return lists.stream()",
+                        "        .mapToInt(x -> x.size())",
+                        "        .sum();",
+                        "  }",
+                        "}")
+                .doTest(BugCheckerRefactoringTestHelper.TestMode.TEXT_MATCH);
+    }
+
+    @Test
+    public void testFixReduceWithoutMap() {
+        refactoringTestHelper
+                .addInputLines(
+                        "Test.java",
+                        "import java.util.List;",
+                        "class Test {",
+                        "  double f(List<Double> values) {",
+                        "    return values.stream().reduce(0.0, Double::sum);",
+                        "  }",
+                        "}")
+                .addOutputLines(
+                        "Test.java",
+                        "import java.util.List;",
+                        "class Test {",
+                        "  double f(List<Double> values) {",
+                        "    return values.stream().mapToDouble(Double::doubleValue).sum();",
+                        "  }",
+                        "}")
+                .doTest(BugCheckerRefactoringTestHelper.TestMode.TEXT_MATCH);
+    }
+
+    @Test
+    public void testFixSumming() {
+        refactoringTestHelper
+                .addInputLines(
+                        "Test.java",
+                        "import static java.util.stream.Collectors.summingLong;",
+                        "import java.util.List;",
+                        "class Test {",
+                        "  long f(List<String> values) {",
+                        "    return values.stream().collect(summingLong(String::length));",
+                        "  }",
+                        "}")
+                .addOutputLines(
+                        "Test.java",
+                        "import static java.util.stream.Collectors.summingLong;",
+                        "import java.util.List;",
+                        "class Test {",
+                        "  long f(List<String> values) {",
+                        "    return values.stream().mapToLong(String::length).sum();",
+                        "  }",
+                        "}")
+                .doTest(BugCheckerRefactoringTestHelper.TestMode.TEXT_MATCH);
+    }
+
+    @Test
+    public void testFixMaxGet() {
+        refactoringTestHelper
+                .addInputLines(
+                        "Test.java",
+                        "import java.util.Comparator;",
+                        "import java.util.List;",
+                        "class Test {",
+                        "  long f(List<Long> values) {",
+                        "    return values.stream().max(Comparator.naturalOrder()).get();",
+                        "  }",
+                        "}")
+                .addOutputLines(
+                        "Test.java",
+                        "import java.util.Comparator;",
+                        "import java.util.List;",
+                        "class Test {",
+                        "  long f(List<Long> values) {",
+                        "    return values.stream().mapToLong(Long::longValue).max().getAsLong();",
+                        "  }",
+                        "}")
+                .doTest(BugCheckerRefactoringTestHelper.TestMode.TEXT_MATCH);
+    }
+
+    @Test
+    public void testFixBoxedMinOrElse() {
+        refactoringTestHelper
+                .addInputLines(
+                        "Test.java",
+                        "import java.util.stream.IntStream;",
+                        "class Test {",
+                        "  int f() {",
+                        "    return IntStream.range(0, 10).boxed().min(Integer::compare).orElse(-1);",
+                        "  }",
+                        "}")
+                .addOutputLines(
+                        "Test.java",
+                        "import java.util.stream.IntStream;",
+                        "class Test {",
+                        "  int f() {",
+                        "    return IntStream.range(0, 10).min().orElse(-1);",
+                        "  }",
+                        "}")
+                .doTest(BugCheckerRefactoringTestHelper.TestMode.TEXT_MATCH);
+    }
+
+    @Test
+    public void testFixDoubleMax() {
+        refactoringTestHelper
+                .addInputLines(
+                        "Test.java",
+                        "import java.util.List;",
+                        "class Test {",
+                        "  double f(List<Double> values) {",
+                        "    return values.stream().max(Double::compare).orElse(0.0);",
+                        "  }",
+                        "}")
+                .addOutputLines(
+                        "Test.java",
+                        "import java.util.List;",
+                        "class Test {",
+                        "  double f(List<Double> values) {",
+                        "    return values.stream().mapToDouble(Double::doubleValue).max().orElse(0.0);",
+                        "  }",
+                        "}")
+                .doTest(BugCheckerRefactoringTestHelper.TestMode.TEXT_MATCH);
+    }
+
+    @Test
+    public void testNoFixForDoubleMin() {
+        refactoringTestHelper
+                .addInputLines(
+                        "Test.java",
+                        "import java.util.Comparator;",
+                        "import java.util.List;",
+                        "class Test {",
+                        "  double f(List<Double> values) {",
+                        "    return values.stream().min(Comparator.naturalOrder()).orElse(0.0);",
+                        "  }",
+                        "}")
+                .expectUnchanged()
+                .doTestExpectingFailure(BugCheckerRefactoringTestHelper.TestMode.TEXT_MATCH);
+    }
+
+    @Test
+    public void testFixBoxedThenUnboxed() {
+        refactoringTestHelper
+                .addInputLines(
+                        "Test.java",
+                        "import java.util.stream.IntStream;",
+                        "class Test {",
+                        "  int f() {",
+                        "    return IntStream.range(0, 10).mapToObj(Integer::valueOf).mapToInt(x -> x).sum();",
+                        "  }",
+                        "}")
+                .addOutputLines(
+                        "Test.java",
+                        "import java.util.stream.IntStream;",
+                        "class Test {",
+                        "  int f() {",
+                        "    return IntStream.range(0, 10).sum();",
+                        "  }",
+                        "}")
+                .doTest(BugCheckerRefactoringTestHelper.TestMode.TEXT_MATCH);
+    }
+
+    @Test
+    public void testNoFixWhenOptionalEscapes() {
+        refactoringTestHelper
+                .addInputLines(
+                        "Test.java",
+                        "import java.util.Comparator;",
+                        "import java.util.List;",
+                        "import java.util.Optional;",
+                        "class Test {",
+                        "  Optional<Long> f(List<Long> values) {",
+                        "    return values.stream().max(Comparator.naturalOrder());",
+                        "  }",
+                        "}")
+                .expectUnchanged()
+                .doTestExpectingFailure(BugCheckerRefactoringTestHelper.TestMode.TEXT_MATCH);
+    }
+}
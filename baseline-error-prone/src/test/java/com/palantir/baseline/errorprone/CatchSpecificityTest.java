@@ -403,6 +403,45 @@ class CatchSpecificityTest {
                 .doTest(BugCheckerRefactoringTestHelper.TestMode.TEXT_MATCH);
     }
 
+    @Test
+    void testNestedTry() {
+        fix().addInputLines(
+                        "Test.java",
+                        "import java.io.*;",
+                        "class Test {",
+                        "  void f(String param) {",
+                        "    try {",
+                        "        try {",
+                        "            throw new IOException();",
+                        "        } catch (Exception e) {",
+                        "            System.out.println(\"inner\");",
+                        "        }",
+                        "        throw new FileNotFoundException();",
+                        "    } catch (Exception e) {",
+                        "        System.out.println(\"outer\");",
+                        "    }",
+                        "  }",
+                        "}")
+                .addOutputLines(
+                        "Test.java",
+                        "import java.io.*;",
+                        "class Test {",
+                        "  void f(String param) {",
+                        "    try {",
+                        "        try {",
+                        "            throw new IOException();",
+                        "        } catch (IOException | RuntimeException e) {",
+                        "            System.out.println(\"inner\");",
+                        "        }",
+                        "        throw new FileNotFoundException();",
+                        "    } catch (FileNotFoundException | RuntimeException e) {",
+                        "        System.out.println(\"outer\");",
+                        "    }",
+                        "  }",
+                        "}")
+                .doTest(BugCheckerRefactoringTestHelper.TestMode.TEXT_MATCH);
+    }
+
     @Test
     void test_testCodeNotModified() {
         fix().addInputLines(
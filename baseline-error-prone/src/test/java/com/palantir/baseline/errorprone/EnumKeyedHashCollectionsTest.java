@@ -0,0 +1,244 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.errorprone;
+
+import com.google.errorprone.BugCheckerRefactoringTestHelper;
+import com.google.errorprone.CompilationTestHelper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class EnumKeyedHashCollectionsTest {
+
+    private CompilationTestHelper compilationHelper;
+    private RefactoringValidator refactoringTestHelper;
+
+    @BeforeEach
+    public void before() {
+        compilationHelper = CompilationTestHelper.newInstance(EnumKeyedHashCollections.class, getClass());
+        refactoringTestHelper = RefactoringValidator.of(new EnumKeyedHashCollections(), getClass());
+    }
+
+    @Test
+    public void testEnumKeyedCollections() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import com.google.common.collect.ImmutableMap;",
+                        "import com.google.common.collect.ImmutableSet;",
+                        "import com.google.common.collect.Maps;",
+                        "import com.google.common.collect.Sets;",
+                        "import java.util.HashMap;",
+                        "import java.util.HashSet;",
+                        "import java.util.Map;",
+                        "import java.util.Set;",
+                        "import java.util.concurrent.TimeUnit;",
+                        "class Test {",
+                        "  // BUG: Diagnostic contains: Map keyed by enum TimeUnit should use Maps.immutableEnumMap",
+                        "  public static final Map<TimeUnit, String> NAMES = ImmutableMap.of(TimeUnit.DAYS, \"d\");",
+                        "  // BUG: Diagnostic contains: iterates in ordinal order",
+                        "  static final Set<TimeUnit> UNITS = ImmutableSet.of(TimeUnit.DAYS, TimeUnit.HOURS);",
+                        "  void f(Map<TimeUnit, Integer> existing) {",
+                        "    // BUG: Diagnostic contains: throws a NullPointerException when given a null key",
+                        "    Map<TimeUnit, Integer> a = new HashMap<>();",
+                        "    // BUG: Diagnostic contains: Map keyed by enum TimeUnit should use EnumMap",
+                        "    HashMap<TimeUnit, Integer> b = new HashMap<>(16);",
+                        "    // BUG: Diagnostic contains: Map keyed by enum TimeUnit should use EnumMap",
+                        "    Map<TimeUnit, Integer> c = Maps.newHashMap(existing);",
+                        "    // BUG: Diagnostic contains: Set of enum TimeUnit should use EnumSet",
+                        "    Set<TimeUnit> d = new HashSet<>();",
+                        "    // BUG: Diagnostic contains: Set of enum TimeUnit should use EnumSet",
+                        "    Set<TimeUnit> e = Sets.newHashSet(TimeUnit.DAYS);",
+                        "    // BUG: Diagnostic contains: Set of enum TimeUnit should use Sets.immutableEnumSet",
+                        "    Set<TimeUnit> g = ImmutableSet.copyOf(existing.keySet());",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testNegative() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import com.google.common.collect.ImmutableMap;",
+                        "import com.google.common.collect.ImmutableSet;",
+                        "import java.util.HashMap;",
+                        "import java.util.HashSet;",
+                        "import java.util.Map;",
+                        "import java.util.Set;",
+                        "import java.util.concurrent.TimeUnit;",
+                        "class Test {",
+                        "  static final Map<TimeUnit, String> EMPTY = ImmutableMap.of();",
+                        "  static final Set<TimeUnit> NONE = ImmutableSet.of();",
+                        "  <E extends Enum<E>> void f() {",
+                        "    Map<String, TimeUnit> byName = new HashMap<>();",
+                        "    Set<String> names = new HashSet<>();",
+                        "    Set<E> generic = new HashSet<>();",
+                        "    Map<TimeUnit, Integer> anonymous = new HashMap<TimeUnit, Integer>() {};",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testFixHashMap() {
+        refactoringTestHelper
+                .addInputLines(
+                        "Test.java",
+                        "import java.util.HashMap;",
+                        "import java.util.Map;",
+                        "import java.util.concurrent.TimeUnit;",
+                        "class Test {",
+                        "  private final Map<TimeUnit, Long> counts = new HashMap<>();",
+                        "}")
+                .addOutputLines(
+                        "Test.java",
+                        "import java.util.EnumMap;",
+                        "import java.util.HashMap;",
+                        "import java.util.Map;",
+                        "import java.util.concurrent.TimeUnit;",
+                        "class Test {",
+                        "  private final Map<TimeUnit, Long> counts = new EnumMap<>(TimeUnit.class);",
+                        "}")
+                .doTest(BugCheckerRefactoringTestHelper.TestMode.TEXT_MATCH);
+    }
+
+    @Test
+    public void testFixHashSet() {
+        refactoringTestHelper
+                .addInputLines(
+                        "Test.java",
+                        "import com.google.common.collect.Sets;",
+                        "import java.util.Set;",
+                        "import java.util.concurrent.TimeUnit;",
+                        "class Test {",
+                        "  void f() {",
+                        "    Set<TimeUnit> units = Sets.newHashSetWithExpectedSize(4);",
+                        "  }",
+                        "}")
+                .addOutputLines(
+                        "Test.java",
+                        "import com.google.common.collect.Sets;",
+                        "import java.util.EnumSet;",
+                        "import java.util.Set;",
+                        "import java.util.concurrent.TimeUnit;",
+                        "class Test {",
+                        "  void f() {",
+                        "    Set<TimeUnit> units = EnumSet.noneOf(TimeUnit.class);",
+                        "  }",
+                        "}")
+                .doTest(BugCheckerRefactoringTestHelper.TestMode.TEXT_MATCH);
+    }
+
+    @Test
+    public void testFixImmutableMap() {
+        refactoringTestHelper
+                .addInputLines(
+                        "Test.java",
+                        "import com.google.common.collect.ImmutableMap;",
+                        "import java.util.concurrent.TimeUnit;",
+                        "class Test {",
+                        "  private static final ImmutableMap<TimeUnit, String> NAMES =",
+                        "      ImmutableMap.of(TimeUnit.HOURS, \"h\", TimeUnit.DAYS, \"d\");",
+                        "}")
+                .addOutputLines(
+                        "Test.java",
+                        "import com.google.common.collect.ImmutableMap;",
+                        "import com.google.common.collect.Maps;",
+                        "import java.util.concurrent.TimeUnit;",
+                        "class Test {",
+                        "  private static final ImmutableMap<TimeUnit, String> NAMES =",
+                        "      Maps.immutableEnumMap(ImmutableMap.of(TimeUnit.HOURS, \"h\", TimeUnit.DAYS, \"d\"));",
+                        "}")
+                .doTest(BugCheckerRefactoringTestHelper.TestMode.TEXT_MATCH);
+    }
+
+    @Test
+    public void testFixImmutableSet() {
+        refactoringTestHelper
+                .addInputLines(
+                        "Test.java",
+                        "import com.google.common.collect.ImmutableSet;",
+                        "import java.util.Set;",
+                        "import java.util.concurrent.TimeUnit;",
+                        "class Test {",
+                        "  void f() {",
+                        "    Set<TimeUnit> units = ImmutableSet.of(TimeUnit.SECONDS, TimeUnit.MINUTES);",
+                        "  }",
+                        "}")
+                .addOutputLines(
+                        "Test.java",
+                        "import com.google.common.collect.ImmutableSet;",
+                        "import com.google.common.collect.Sets;",
+                        "import java.util.Set;",
+                        "import java.util.concurrent.TimeUnit;",
+                        "class Test {",
+                        "  void f() {",
+                        "    Set<TimeUnit> units = Sets.immutableEnumSet(TimeUnit.SECONDS, TimeUnit.MINUTES);",
+                        "  }",
+                        "}")
+                .doTest(BugCheckerRefactoringTestHelper.TestMode.TEXT_MATCH);
+    }
+
+    @Test
+    public void testNoFixForImmutableMapOutOfOrdinalOrder() {
+        refactoringTestHelper
+                .addInputLines(
+                        "Test.java",
+                        "import com.google.common.collect.ImmutableMap;",
+                        "import java.util.concurrent.TimeUnit;",
+                        "class Test {",
+                        "  private static final ImmutableMap<TimeUnit, String> NAMES =",
+                        "      ImmutableMap.of(TimeUnit.DAYS, \"d\", TimeUnit.HOURS, \"h\");",
+                        "}")
+                .expectUnchanged()
+                .doTestExpectingFailure(BugCheckerRefactoringTestHelper.TestMode.TEXT_MATCH);
+    }
+
+    @Test
+    public void testNoFixForImmutableSetCopy() {
+        refactoringTestHelper
+                .addInputLines(
+                        "Test.java",
+                        "import com.google.common.collect.ImmutableSet;",
+                        "import java.util.Set;",
+                        "import java.util.concurrent.TimeUnit;",
+                        "class Test {",
+                        "  void f(Set<TimeUnit> units) {",
+                        "    Set<TimeUnit> copy = ImmutableSet.copyOf(units);",
+                        "  }",
+                        "}")
+                .expectUnchanged()
+                .doTestExpectingFailure(BugCheckerRefactoringTestHelper.TestMode.TEXT_MATCH);
+    }
+
+    @Test
+    public void testNoFixForPublicFieldOrConcreteType() {
+        refactoringTestHelper
+                .addInputLines(
+                        "Test.java",
+                        "import java.util.HashMap;",
+                        "import java.util.Map;",
+                        "import java.util.concurrent.TimeUnit;",
+                        "class Test {",
+                        "  public final Map<TimeUnit, Long> counts = new HashMap<>();",
+                        "  private final HashMap<TimeUnit, Long> concrete = new HashMap<>();",
+                        "}")
+                .expectUnchanged()
+                .doTestExpectingFailure(BugCheckerRefactoringTestHelper.TestMode.TEXT_MATCH);
+    }
+}
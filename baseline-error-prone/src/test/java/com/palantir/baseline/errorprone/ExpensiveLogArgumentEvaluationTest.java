@@ -0,0 +1,241 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.errorprone;
+
+import com.google.errorprone.BugCheckerRefactoringTestHelper;
+import com.google.errorprone.CompilationTestHelper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ExpensiveLogArgumentEvaluationTest {
+
+    private CompilationTestHelper compilationHelper;
+    private RefactoringValidator refactoringTestHelper;
+
+    @BeforeEach
+    public void before() {
+        compilationHelper = CompilationTestHelper.newInstance(ExpensiveLogArgumentEvaluation.class, getClass());
+        refactoringTestHelper = RefactoringValidator.of(new ExpensiveLogArgumentEvaluation(), getClass());
+    }
+
+    @Test
+    public void testExpensiveArguments() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import com.palantir.logsafe.SafeArg;",
+                        "import java.util.ArrayList;",
+                        "import java.util.List;",
+                        "import java.util.stream.Collectors;",
+                        "import org.slf4j.Logger;",
+                        "import org.slf4j.LoggerFactory;",
+                        "class Test {",
+                        "  private static final Logger log = LoggerFactory.getLogger(Test.class);",
+                        "  void f(Object value, List<String> items) {",
+                        "    // BUG: Diagnostic contains: is evaluated even when debug logging is disabled",
+                        "    log.debug(\"value {}\", value.toString());",
+                        "    // BUG: Diagnostic contains: is evaluated even when trace logging is disabled",
+                        "    log.trace(\"value {}\", String.format(\"%s\", value));",
+                        "    // BUG: Diagnostic contains: is evaluated even when debug logging is disabled",
+                        "    log.debug(\"items {}\", items.stream().collect(Collectors.joining()));",
+                        "    // BUG: Diagnostic contains: is evaluated even when debug logging is disabled",
+                        "    log.debug(\"items {}\", new ArrayList<>(items));",
+                        "    // BUG: Diagnostic contains: is evaluated even when debug logging is disabled",
+                        "    log.debug(\"value {}\", \"prefix\" + value);",
+                        "    // BUG: Diagnostic contains: is evaluated even when debug logging is disabled",
+                        "    log.debug(\"value {}\", SafeArg.of(\"value\", value.toString()));",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testCheapArguments() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import com.palantir.logsafe.SafeArg;",
+                        "import java.util.List;",
+                        "import java.util.function.Supplier;",
+                        "import org.slf4j.Logger;",
+                        "import org.slf4j.LoggerFactory;",
+                        "class Test {",
+                        "  private static final Logger log = LoggerFactory.getLogger(Test.class);",
+                        "  private static final String PREFIX = \"prefix\";",
+                        "  void f(Object value, List<String> items, Thread thread) {",
+                        "    log.debug(\"value {}\", value);",
+                        "    log.debug(\"value {}\", SafeArg.of(\"value\", value));",
+                        "    log.debug(\"items {}\", items.size());",
+                        "    log.debug(\"thread {}\", thread.getName());",
+                        "    log.debug(PREFIX + \" {}\", value);",
+                        "    log.debug(\"value {}\", (Supplier<String>) () -> value.toString());",
+                        "    log.info(\"value {}\", value.toString());",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testGuarded() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import org.slf4j.Logger;",
+                        "import org.slf4j.LoggerFactory;",
+                        "class Test {",
+                        "  private static final Logger log = LoggerFactory.getLogger(Test.class);",
+                        "  void f(Object value) {",
+                        "    if (log.isDebugEnabled()) {",
+                        "      log.debug(\"value {}\", value.toString());",
+                        "    }",
+                        "  }",
+                        "  void g(Object value) {",
+                        "    if (!log.isTraceEnabled()) {",
+                        "      return;",
+                        "    }",
+                        "    log.trace(\"value {}\", value.toString());",
+                        "  }",
+                        "  void h(Object value, boolean verbose) {",
+                        "    if (verbose && log.isTraceEnabled()) {",
+                        "      log.debug(\"value {}\", value.toString());",
+                        "    }",
+                        "    if (!log.isDebugEnabled()) {",
+                        "      return;",
+                        "    } else {",
+                        "      log.debug(\"value {}\", value.toString());",
+                        "    }",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testNotGuardedByNegatedCheck() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import org.slf4j.Logger;",
+                        "import org.slf4j.LoggerFactory;",
+                        "class Test {",
+                        "  private static final Logger log = LoggerFactory.getLogger(Test.class);",
+                        "  void f(Object value) {",
+                        "    if (!log.isDebugEnabled()) {",
+                        "      // BUG: Diagnostic contains: evaluated even when debug logging is disabled",
+                        "      log.debug(\"value {}\", value.toString());",
+                        "    }",
+                        "  }",
+                        "  void g(Object value, boolean verbose) {",
+                        "    if (verbose || log.isDebugEnabled()) {",
+                        "      // BUG: Diagnostic contains: evaluated even when debug logging is disabled",
+                        "      log.debug(\"value {}\", value.toString());",
+                        "    }",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testNotGuardedByHigherLevel() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import org.slf4j.Logger;",
+                        "import org.slf4j.LoggerFactory;",
+                        "class Test {",
+                        "  private static final Logger log = LoggerFactory.getLogger(Test.class);",
+                        "  void f(Object value) {",
+                        "    if (log.isInfoEnabled()) {",
+                        "      // BUG: Diagnostic contains: evaluated even when debug logging is disabled",
+                        "      log.debug(\"value {}\", value.toString());",
+                        "    }",
+                        "  }",
+                        "  void g(Object value) {",
+                        "    if (!log.isDebugEnabled()) {",
+                        "      return;",
+                        "    }",
+                        "    // BUG: Diagnostic contains: evaluated even when trace logging is disabled",
+                        "    log.trace(\"value {}\", value.toString());",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testNotGuardedByOtherLogger() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import org.slf4j.Logger;",
+                        "import org.slf4j.LoggerFactory;",
+                        "class Test {",
+                        "  private static final Logger log = LoggerFactory.getLogger(Test.class);",
+                        "  private static final Logger audit = LoggerFactory.getLogger(\"audit\");",
+                        "  void f(Object value) {",
+                        "    if (audit.isDebugEnabled()) {",
+                        "      // BUG: Diagnostic contains: evaluated even when debug logging is disabled",
+                        "      log.debug(\"value {}\", value.toString());",
+                        "    }",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testFixGuardsStatement() {
+        refactoringTestHelper
+                .addInputLines(
+                        "Test.java",
+                        "import org.slf4j.Logger;",
+                        "import org.slf4j.LoggerFactory;",
+                        "class Test {",
+                        "  private static final Logger log = LoggerFactory.getLogger(Test.class);",
+                        "  void f(Object value) {",
+                        "    log.trace(\"value {}\", value.toString());",
+                        "  }",
+                        "}")
+                .addOutputLines(
+                        "Test.java",
+                        "import org.slf4j.Logger;",
+                        "import org.slf4j.LoggerFactory;",
+                        "class Test {",
+                        "  private static final Logger log = LoggerFactory.getLogger(Test.class);",
+                        "  void f(Object value) {",
+                        "    if (log.isTraceEnabled()) {",
+                        "      log.trace(\"value {}\", value.toString());",
+                        "    }",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testNoFixForLambdaBody() {
+        refactoringTestHelper
+                .addInputLines(
+                        "Test.java",
+                        "import org.slf4j.Logger;",
+                        "import org.slf4j.LoggerFactory;",
+                        "class Test {",
+                        "  private static final Logger log = LoggerFactory.getLogger(Test.class);",
+                        "  Runnable f(Object value) {",
+                        "    return () -> log.debug(\"value {}\", value.toString());",
+                        "  }",
+                        "}")
+                .expectUnchanged()
+                .doTestExpectingFailure(BugCheckerRefactoringTestHelper.TestMode.TEXT_MATCH);
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.errorprone;
+
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.BugCheckerRefactoringTestHelper;
+import com.google.errorprone.CompilationTestHelper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class HeavyweightObjectPerCallTest {
+
+    private CompilationTestHelper compilationHelper;
+    private RefactoringValidator refactoringTestHelper;
+
+    @BeforeEach
+    public void before() {
+        compilationHelper = CompilationTestHelper.newInstance(HeavyweightObjectPerCall.class, getClass());
+        refactoringTestHelper = RefactoringValidator.of(new HeavyweightObjectPerCall(), getClass());
+    }
+
+    @Test
+    public void testCreatedPerCall() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import java.time.LocalDate;",
+                        "import java.time.format.DateTimeFormatter;",
+                        "import java.util.function.Function;",
+                        "import javax.xml.transform.TransformerFactory;",
+                        "class Test {",
+                        "  String f(LocalDate date) throws Exception {",
+                        "    // BUG: Diagnostic contains: DateTimeFormatter is expensive to create",
+                        "    DateTimeFormatter formatter = DateTimeFormatter.ofPattern(\"yyyy\");",
+                        "    TransformerFactory.newInstance().newTransformer();",
+                        "    return formatter.format(date);",
+                        "  }",
+                        "  Function<LocalDate, String> g() {",
+                        "    // BUG: Diagnostic contains: DateTimeFormatter is expensive to create",
+                        "    return date -> DateTimeFormatter.ofPattern(\"yyyy\").format(date);",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testCreatedOnce() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import java.time.format.DateTimeFormatter;",
+                        "class Test {",
+                        "  private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern(\"yyyy\");",
+                        "  private final DateTimeFormatter formatter;",
+                        "  Test(String pattern) {",
+                        "    formatter = DateTimeFormatter.ofPattern(pattern);",
+                        "  }",
+                        "  static DateTimeFormatter create(String pattern) {",
+                        "    return DateTimeFormatter.ofPattern(pattern);",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testMessageDigestInLoop() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import java.security.MessageDigest;",
+                        "import java.util.List;",
+                        "class Test {",
+                        "  void f(List<byte[]> values) throws Exception {",
+                        "    MessageDigest once = MessageDigest.getInstance(\"SHA-256\");",
+                        "    for (byte[] value : values) {",
+                        "      // BUG: Diagnostic contains: MessageDigest is created on every iteration",
+                        "      MessageDigest.getInstance(\"SHA-256\").digest(value);",
+                        "    }",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testXmlFactoriesInLoop() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import java.util.List;",
+                        "import javax.xml.parsers.DocumentBuilderFactory;",
+                        "class Test {",
+                        "  void f(List<String> values) throws Exception {",
+                        "    DocumentBuilderFactory.newInstance().newDocumentBuilder();",
+                        "    for (String value : values) {",
+                        "      // BUG: Diagnostic contains: DocumentBuilderFactory is created on every iteration",
+                        "      DocumentBuilderFactory.newInstance().newDocumentBuilder();",
+                        "    }",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testAdditionalTypes() {
+        compilationHelper
+                .setArgs(ImmutableList.of("-XepOpt:HeavyweightObjectPerCall:AdditionalTypes=com.example.Client"))
+                .addSourceLines("Client.java", "package com.example;", "public class Client {}")
+                .addSourceLines(
+                        "Test.java",
+                        "import com.example.Client;",
+                        "class Test {",
+                        "  Object f() {",
+                        "    // BUG: Diagnostic contains: Client is expensive to create",
+                        "    Client client = new Client();",
+                        "    return client;",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testFix() {
+        refactoringTestHelper
+                .addInputLines(
+                        "Test.java",
+                        "import java.time.LocalDate;",
+                        "import java.time.format.DateTimeFormatter;",
+                        "class Test {",
+                        "  private static final String PATTERN = \"yyyy\";",
+                        "  String f(LocalDate date) {",
+                        "    return DateTimeFormatter.ofPattern(PATTERN).format(date);",
+                        "  }",
+                        "}")
+                .addOutputLines(
+                        "Test.java",
+                        "import java.time.LocalDate;",
+                        "import java.time.format.DateTimeFormatter;",
+                        "class Test {",
+                        "  private static final DateTimeFormatter DATE_TIME_FORMATTER =",
+                        "      DateTimeFormatter.ofPattern(PATTERN);",
+                        "  private static final String PATTERN = \"yyyy\";",
+                        "  String f(LocalDate date) {",
+                        "    return DATE_TIME_FORMATTER.format(date);",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testFixNumbersFieldsOfTheSameType() {
+        refactoringTestHelper
+                .addInputLines(
+                        "Test.java",
+                        "import java.time.LocalDate;",
+                        "import java.time.format.DateTimeFormatter;",
+                        "class Test {",
+                        "  private static final DateTimeFormatter DATE_TIME_FORMATTER =",
+                        "      DateTimeFormatter.ofPattern(\"yyyy\");",
+                        "  String f(LocalDate date) {",
+                        "    return DateTimeFormatter.ofPattern(\"MM\").format(date);",
+                        "  }",
+                        "}")
+                .addOutputLines(
+                        "Test.java",
+                        "import java.time.LocalDate;",
+                        "import java.time.format.DateTimeFormatter;",
+                        "class Test {",
+                        "  private static final DateTimeFormatter DATE_TIME_FORMATTER_2 =",
+                        "      DateTimeFormatter.ofPattern(\"MM\");",
+                        "  private static final DateTimeFormatter DATE_TIME_FORMATTER =",
+                        "      DateTimeFormatter.ofPattern(\"yyyy\");",
+                        "  String f(LocalDate date) {",
+                        "    return DATE_TIME_FORMATTER_2.format(date);",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testNoFixForLocalConstant() {
+        refactoringTestHelper
+                .addInputLines(
+                        "Test.java",
+                        "import java.time.LocalDate;",
+                        "import java.time.format.DateTimeFormatter;",
+                        "class Test {",
+                        "  String f(LocalDate date) {",
+                        "    final String pattern = \"yyyy\";",
+                        "    return DateTimeFormatter.ofPattern(pattern).format(date);",
+                        "  }",
+                        "}")
+                .expectUnchanged()
+                .doTestExpectingFailure(BugCheckerRefactoringTestHelper.TestMode.TEXT_MATCH);
+    }
+
+    @Test
+    public void testNoFixForInstanceFieldConstant() {
+        refactoringTestHelper
+                .addInputLines(
+                        "Test.java",
+                        "import java.time.LocalDate;",
+                        "import java.time.format.DateTimeFormatter;",
+                        "class Test {",
+                        "  private final String pattern = \"yyyy\";",
+                        "  String f(LocalDate date) {",
+                        "    return DateTimeFormatter.ofPattern(pattern).format(date);",
+                        "  }",
+                        "}")
+                .expectUnchanged()
+                .doTestExpectingFailure(BugCheckerRefactoringTestHelper.TestMode.TEXT_MATCH);
+    }
+
+    @Test
+    public void testNonConstantArguments() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import java.time.LocalDate;",
+                        "import java.time.format.DateTimeFormatter;",
+                        "class Test {",
+                        "  String f(LocalDate date, String pattern) {",
+                        "    return DateTimeFormatter.ofPattern(pattern).format(date);",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testFixObjectMapperRead() {
+        BugCheckerRefactoringTestHelper.newInstance(new HeavyweightObjectPerCall(), getClass())
+                .addInputLines(
+                        "ObjectMapper.java",
+                        "package com.fasterxml.jackson.databind;",
+                        "public class ObjectMapper {",
+                        "  public ObjectMapper configure(String feature, boolean state) {",
+                        "    return this;",
+                        "  }",
+                        "  public <T> T readValue(String content, Class<T> type) {",
+                        "    return null;",
+                        "  }",
+                        "}")
+                .expectUnchanged()
+                .addInputLines(
+                        "Test.java",
+                        "import com.fasterxml.jackson.databind.ObjectMapper;",
+                        "class Test {",
+                        "  String f(String json) {",
+                        "    return new ObjectMapper().readValue(json, String.class);",
+                        "  }",
+                        "}")
+                .addOutputLines(
+                        "Test.java",
+                        "import com.fasterxml.jackson.databind.ObjectMapper;",
+                        "class Test {",
+                        "  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();",
+                        "  String f(String json) {",
+                        "    return OBJECT_MAPPER.readValue(json, String.class);",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testNoFixForConfiguredObjectMapper() {
+        BugCheckerRefactoringTestHelper.newInstance(new HeavyweightObjectPerCall(), getClass())
+                .addInputLines(
+                        "ObjectMapper.java",
+                        "package com.fasterxml.jackson.databind;",
+                        "public class ObjectMapper {",
+                        "  public ObjectMapper configure(String feature, boolean state) {",
+                        "    return this;",
+                        "  }",
+                        "  public <T> T readValue(String content, Class<T> type) {",
+                        "    return null;",
+                        "  }",
+                        "}")
+                .expectUnchanged()
+                .addInputLines(
+                        "Test.java",
+                        "import com.fasterxml.jackson.databind.ObjectMapper;",
+                        "class Test {",
+                        "  String f(String json) {",
+                        "    return new ObjectMapper().configure(\"feature\", true).readValue(json, String.class);",
+                        "  }",
+                        "  void g(ObjectMapper mapper) {}",
+                        "  void h() {",
+                        "    g(new ObjectMapper());",
+                        "  }",
+                        "}")
+                .expectUnchanged()
+                .doTest();
+    }
+
+    @Test
+    public void testNoFixInEnum() {
+        refactoringTestHelper
+                .addInputLines(
+                        "Test.java",
+                        "import java.time.LocalDate;",
+                        "import java.time.format.DateTimeFormatter;",
+                        "enum Test {",
+                        "  A;",
+                        "  String f(LocalDate date) {",
+                        "    return DateTimeFormatter.ofPattern(\"yyyy\").format(date);",
+                        "  }",
+                        "}")
+                .expectUnchanged()
+                .doTestExpectingFailure(BugCheckerRefactoringTestHelper.TestMode.TEXT_MATCH);
+    }
+}
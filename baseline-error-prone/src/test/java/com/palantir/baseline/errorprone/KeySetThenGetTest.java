@@ -0,0 +1,179 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.errorprone;
+
+import com.google.errorprone.BugCheckerRefactoringTestHelper;
+import com.google.errorprone.CompilationTestHelper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class KeySetThenGetTest {
+
+    private CompilationTestHelper compilationHelper;
+    private RefactoringValidator refactoringTestHelper;
+
+    @BeforeEach
+    public void before() {
+        compilationHelper = CompilationTestHelper.newInstance(KeySetThenGet.class, getClass());
+        refactoringTestHelper = RefactoringValidator.of(new KeySetThenGet(), getClass());
+    }
+
+    @Test
+    public void testKeySetThenGet() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import com.google.common.collect.Multimap;",
+                        "import com.google.common.collect.Table;",
+                        "import java.util.Map;",
+                        "class Test {",
+                        "  private final Map<String, Integer> field = null;",
+                        "  void f(Map<String, Integer> map, Multimap<String, Integer> multimap,",
+                        "      Table<String, String, Integer> table) {",
+                        "    // BUG: Diagnostic contains: iterate over map.entrySet() instead",
+                        "    for (String key : map.keySet()) {",
+                        "      System.out.println(map.get(key));",
+                        "    }",
+                        "    // BUG: Diagnostic contains: iterate over this.field.entrySet() instead",
+                        "    for (String key : this.field.keySet()) {",
+                        "      System.out.println(field.get(key));",
+                        "    }",
+                        "    // BUG: Diagnostic contains: iterate over multimap.asMap().entrySet() instead",
+                        "    for (String key : multimap.keySet()) {",
+                        "      System.out.println(multimap.get(key));",
+                        "    }",
+                        "    // BUG: Diagnostic contains: iterate over table.rowMap().entrySet() instead",
+                        "    for (String row : table.rowKeySet()) {",
+                        "      System.out.println(table.row(row));",
+                        "    }",
+                        "    // BUG: Diagnostic contains: use map.forEach((key, value) -> ...) instead",
+                        "    map.keySet().forEach(key -> System.out.println(map.get(key)));",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testNegative() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import java.util.Map;",
+                        "class Test {",
+                        "  void f(Map<String, Integer> map, Map<String, Integer> other) {",
+                        "    for (String key : map.keySet()) {",
+                        "      System.out.println(other.get(key) + map.get(\"constant\"));",
+                        "    }",
+                        "    map.keySet().forEach(key -> System.out.println(key));",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testFixLoop() {
+        refactoringTestHelper
+                .addInputLines(
+                        "Test.java",
+                        "import java.util.Map;",
+                        "class Test {",
+                        "  void f(Map<String, Integer> map) {",
+                        "    for (String key : map.keySet()) {",
+                        "      System.out.println(key + map.get(key));",
+                        "    }",
+                        "  }",
+                        "}")
+                .addOutputLines(
+                        "Test.java",
+                        "import java.util.Map;",
+                        "class Test {",
+                        "  void f(Map<String, Integer> map) {",
+                        "    for (Map.Entry<String, Integer> entry : map.entrySet()) {",
+                        "      String key = entry.getKey();",
+                        "      System.out.println(key + entry.getValue());",
+                        "    }",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testFixTableLoop() {
+        refactoringTestHelper
+                .addInputLines(
+                        "Test.java",
+                        "import com.google.common.collect.Table;",
+                        "class Test {",
+                        "  void f(Table<String, String, Integer> table) {",
+                        "    for (String row : table.rowKeySet()) {",
+                        "      System.out.println(table.row(row).size());",
+                        "    }",
+                        "  }",
+                        "}")
+                .addOutputLines(
+                        "Test.java",
+                        "import com.google.common.collect.Table;",
+                        "import java.util.Map;",
+                        "class Test {",
+                        "  void f(Table<String, String, Integer> table) {",
+                        "    for (Map.Entry<String, Map<String, Integer>> entry : table.rowMap().entrySet()) {",
+                        "      System.out.println(entry.getValue().size());",
+                        "    }",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testFixForEach() {
+        refactoringTestHelper
+                .addInputLines(
+                        "Test.java",
+                        "import java.util.Map;",
+                        "class Test {",
+                        "  void f(Map<String, Integer> map) {",
+                        "    map.keySet().forEach(key -> System.out.println(key + map.get(key)));",
+                        "  }",
+                        "}")
+                .addOutputLines(
+                        "Test.java",
+                        "import java.util.Map;",
+                        "class Test {",
+                        "  void f(Map<String, Integer> map) {",
+                        "    map.forEach((key, value) -> System.out.println(key + value));",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testNoFixWhenMapModified() {
+        refactoringTestHelper
+                .addInputLines(
+                        "Test.java",
+                        "import java.util.Map;",
+                        "class Test {",
+                        "  void f(Map<String, Integer> map) {",
+                        "    for (String key : map.keySet()) {",
+                        "      map.put(key, map.get(key) + 1);",
+                        "    }",
+                        "  }",
+                        "}")
+                .expectUnchanged()
+                .doTestExpectingFailure(BugCheckerRefactoringTestHelper.TestMode.TEXT_MATCH);
+    }
+}
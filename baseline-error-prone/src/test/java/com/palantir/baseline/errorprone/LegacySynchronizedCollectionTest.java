@@ -0,0 +1,206 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.errorprone;
+
+import com.google.errorprone.BugCheckerRefactoringTestHelper;
+import com.google.errorprone.CompilationTestHelper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class LegacySynchronizedCollectionTest {
+
+    private CompilationTestHelper compilationHelper;
+    private RefactoringValidator refactoringTestHelper;
+
+    @BeforeEach
+    public void before() {
+        compilationHelper = CompilationTestHelper.newInstance(LegacySynchronizedCollection.class, getClass());
+        refactoringTestHelper = RefactoringValidator.of(new LegacySynchronizedCollection(), getClass());
+    }
+
+    @Test
+    public void testLocals() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import java.util.Hashtable;",
+                        "import java.util.List;",
+                        "import java.util.Map;",
+                        "import java.util.Stack;",
+                        "import java.util.Vector;",
+                        "class Test {",
+                        "  String f(String value) {",
+                        "    // BUG: Diagnostic contains: prefer StringBuilder",
+                        "    StringBuffer buffer = new StringBuffer();",
+                        "    buffer.append(value).append(',');",
+                        "    // BUG: Diagnostic contains: prefer HashMap",
+                        "    Map<String, String> map = new Hashtable<>();",
+                        "    map.put(value, value);",
+                        "    // BUG: Diagnostic contains: prefer ArrayList",
+                        "    List<String> list = new Vector<>();",
+                        "    list.add(value);",
+                        "    // BUG: Diagnostic contains: ArrayDeque rejects null elements",
+                        "    Stack<String> stack = new Stack<>();",
+                        "    stack.push(value);",
+                        "    return buffer.toString() + map.get(value) + list.get(0) + stack.pop();",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testEscapingLocals() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import java.util.Vector;",
+                        "class Test {",
+                        "  StringBuffer f() {",
+                        "    StringBuffer returned = new StringBuffer();",
+                        "    return returned;",
+                        "  }",
+                        "  void g() {",
+                        "    Vector<String> passed = new Vector<>();",
+                        "    h(passed);",
+                        "    StringBuffer captured = new StringBuffer();",
+                        "    Runnable runnable = () -> captured.append(\"a\");",
+                        "    StringBuffer chained = new StringBuffer();",
+                        "    StringBuffer alias = chained.append(\"a\");",
+                        "  }",
+                        "  void h(Vector<String> values) {}",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testFields() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import java.util.Collections;",
+                        "import java.util.HashMap;",
+                        "import java.util.Hashtable;",
+                        "import java.util.List;",
+                        "import java.util.ArrayList;",
+                        "import java.util.Map;",
+                        "class Test {",
+                        "  // BUG: Diagnostic contains: Collections.synchronizedMap acquires a single monitor",
+                        "  private final Map<String, String> map = Collections.synchronizedMap(new HashMap<>());",
+                        "  // BUG: Diagnostic contains: Collections.synchronizedList acquires a single monitor",
+                        "  private final List<String> list = Collections.synchronizedList(new ArrayList<>());",
+                        "  // BUG: Diagnostic contains: prefer ConcurrentHashMap for shared fields",
+                        "  private final Map<String, String> table = new Hashtable<>();",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testFixLocals() {
+        refactoringTestHelper
+                .addInputLines(
+                        "Test.java",
+                        "import java.util.Hashtable;",
+                        "import java.util.Map;",
+                        "class Test {",
+                        "  String f(String value) {",
+                        "    StringBuffer buffer = new StringBuffer(value);",
+                        "    buffer.append(value).append(',');",
+                        "    Map<String, String> map = new Hashtable<>();",
+                        "    map.put(value, value);",
+                        "    return buffer.toString() + map.get(value);",
+                        "  }",
+                        "}")
+                .addOutputLines(
+                        "Test.java",
+                        "import java.util.HashMap;",
+                        "import java.util.Hashtable;",
+                        "import java.util.Map;",
+                        "class Test {",
+                        "  String f(String value) {",
+                        "    StringBuilder buffer = new StringBuilder(value);",
+                        "    buffer.append(value).append(',');",
+                        "    Map<String, String> map = new HashMap<>();",
+                        "    map.put(value, value);",
+                        "    return buffer.toString() + map.get(value);",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testNoFixForStack() {
+        refactoringTestHelper
+                .addInputLines(
+                        "Test.java",
+                        "import java.util.Stack;",
+                        "class Test {",
+                        "  String f(String value) {",
+                        "    Stack<String> stack = new Stack<>();",
+                        "    stack.push(value);",
+                        "    return stack.empty() ? null : stack.pop();",
+                        "  }",
+                        "}")
+                .expectUnchanged()
+                .doTestExpectingFailure(BugCheckerRefactoringTestHelper.TestMode.TEXT_MATCH);
+    }
+
+    @Test
+    public void testNoFixForLegacyMethods() {
+        refactoringTestHelper
+                .addInputLines(
+                        "Test.java",
+                        "import java.util.Vector;",
+                        "class Test {",
+                        "  String f(String value) {",
+                        "    Vector<String> vector = new Vector<>();",
+                        "    vector.addElement(value);",
+                        "    return vector.firstElement();",
+                        "  }",
+                        "}")
+                .expectUnchanged()
+                .doTestExpectingFailure(BugCheckerRefactoringTestHelper.TestMode.TEXT_MATCH);
+    }
+
+    @Test
+    public void testFixFields() {
+        refactoringTestHelper
+                .addInputLines(
+                        "Test.java",
+                        "import java.util.Collections;",
+                        "import java.util.HashMap;",
+                        "import java.util.HashSet;",
+                        "import java.util.Map;",
+                        "import java.util.Set;",
+                        "class Test {",
+                        "  private final Map<String, String> map = Collections.synchronizedMap(new HashMap<>());",
+                        "  private final Set<String> set = Collections.synchronizedSet(new HashSet<>());",
+                        "}")
+                .addOutputLines(
+                        "Test.java",
+                        "import java.util.Collections;",
+                        "import java.util.HashMap;",
+                        "import java.util.HashSet;",
+                        "import java.util.Map;",
+                        "import java.util.Set;",
+                        "import java.util.concurrent.ConcurrentHashMap;",
+                        "class Test {",
+                        "  private final Map<String, String> map = new ConcurrentHashMap<>();",
+                        "  private final Set<String> set = ConcurrentHashMap.newKeySet();",
+                        "}")
+                .doTest();
+    }
+}
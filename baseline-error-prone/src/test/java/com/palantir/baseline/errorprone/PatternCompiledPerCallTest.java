@@ -0,0 +1,242 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.errorprone;
+
+import com.google.errorprone.BugCheckerRefactoringTestHelper;
+import com.google.errorprone.CompilationTestHelper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class PatternCompiledPerCallTest {
+
+    private CompilationTestHelper compilationHelper;
+    private RefactoringValidator refactoringTestHelper;
+
+    @BeforeEach
+    public void before() {
+        compilationHelper = CompilationTestHelper.newInstance(PatternCompiledPerCall.class, getClass());
+        refactoringTestHelper = RefactoringValidator.of(new PatternCompiledPerCall(), getClass());
+    }
+
+    @Test
+    public void testRegexApisInMethods() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import java.util.regex.Pattern;",
+                        "import java.util.stream.Stream;",
+                        "class Test {",
+                        "  void f(String value) {",
+                        "    // BUG: Diagnostic contains: static final Pattern",
+                        "    Pattern.compile(\"a+\");",
+                        "    // BUG: Diagnostic contains: static final Pattern",
+                        "    value.matches(\"a+\");",
+                        "    // BUG: Diagnostic contains: static final Pattern",
+                        "    value.replaceAll(\"a+\", \"b\");",
+                        "    // BUG: Diagnostic contains: static final Pattern",
+                        "    value.replaceFirst(\"a+\", \"b\");",
+                        "    // BUG: Diagnostic contains: static final Pattern",
+                        "    value.split(\", \");",
+                        "    // BUG: Diagnostic contains: static final Pattern",
+                        "    Stream.of(value).map(v -> v.split(\"\\\\s+\"));",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testNegative() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import java.util.regex.Pattern;",
+                        "class Test {",
+                        "  private static final Pattern PATTERN = Pattern.compile(\"a+\");",
+                        "  static {",
+                        "    Pattern.compile(\"b+\");",
+                        "  }",
+                        "  void f(String value, String regex) {",
+                        "    Pattern.compile(regex);",
+                        "    value.matches(regex);",
+                        "    value.split(\",\");",
+                        "    value.split(\"\\\\.\");",
+                        "    value.replace(\"a\", \"b\");",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testFixPatternCompile() {
+        refactoringTestHelper
+                .addInputLines(
+                        "Test.java",
+                        "import java.util.regex.Pattern;",
+                        "class Test {",
+                        "  boolean f(String value) {",
+                        "    return Pattern.compile(\"a+\", Pattern.CASE_INSENSITIVE).matcher(value).find();",
+                        "  }",
+                        "}")
+                .addOutputLines(
+                        "Test.java",
+                        "import java.util.regex.Pattern;",
+                        "class Test {",
+                        "  private static final Pattern F_PATTERN = Pattern.compile(\"a+\", Pattern.CASE_INSENSITIVE);",
+                        "  boolean f(String value) {",
+                        "    return F_PATTERN.matcher(value).find();",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testFixMatchesStaticConstant() {
+        refactoringTestHelper
+                .addInputLines(
+                        "Test.java",
+                        "class Test {",
+                        "  private static final String REGEX = \"a+\";",
+                        "  boolean valid(String value) {",
+                        "    return value.matches(REGEX);",
+                        "  }",
+                        "}")
+                .addOutputLines(
+                        "Test.java",
+                        "import java.util.regex.Pattern;",
+                        "class Test {",
+                        "  private static final Pattern VALID_PATTERN = Pattern.compile(REGEX);",
+                        "  private static final String REGEX = \"a+\";",
+                        "  boolean valid(String value) {",
+                        "    return VALID_PATTERN.matcher(value).matches();",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testFixReplaceAll() {
+        refactoringTestHelper
+                .addInputLines(
+                        "Test.java",
+                        "class Test {",
+                        "  String normalizeSpaces(String value) {",
+                        "    return value.replaceAll(\" +\", \" \");",
+                        "  }",
+                        "}")
+                .addOutputLines(
+                        "Test.java",
+                        "import java.util.regex.Pattern;",
+                        "class Test {",
+                        "  private static final Pattern NORMALIZE_SPACES_PATTERN = Pattern.compile(\" +\");",
+                        "  String normalizeSpaces(String value) {",
+                        "    return NORMALIZE_SPACES_PATTERN.matcher(value).replaceAll(\" \");",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testFixSplitWithLimit() {
+        refactoringTestHelper
+                .addInputLines(
+                        "Test.java",
+                        "class Test {",
+                        "  String[] f(String value) {",
+                        "    return value.split(\", \", 2);",
+                        "  }",
+                        "}")
+                .addOutputLines(
+                        "Test.java",
+                        "import java.util.regex.Pattern;",
+                        "class Test {",
+                        "  private static final Pattern F_PATTERN = Pattern.compile(\", \");",
+                        "  String[] f(String value) {",
+                        "    return F_PATTERN.split(value, 2);",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testFixNumbersOverloads() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "class Test {",
+                        "  boolean parse(String value) {",
+                        "    // BUG: Diagnostic contains: PARSE_PATTERN.matcher(value)",
+                        "    return value.matches(\"a+\");",
+                        "  }",
+                        "  boolean parse(int value) {",
+                        "    // BUG: Diagnostic contains: PARSE_PATTERN_2.matcher(String.valueOf(value))",
+                        "    return String.valueOf(value).matches(\"[0-9]+\");",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testNoFixForLocalConstant() {
+        refactoringTestHelper
+                .addInputLines(
+                        "Test.java",
+                        "class Test {",
+                        "  boolean f(String value) {",
+                        "    final String regex = \"a+\";",
+                        "    return value.matches(regex);",
+                        "  }",
+                        "}")
+                .expectUnchanged()
+                .doTestExpectingFailure(BugCheckerRefactoringTestHelper.TestMode.TEXT_MATCH);
+    }
+
+    @Test
+    public void testInstanceFieldNotFlagged() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import java.util.regex.Pattern;",
+                        "class Test {",
+                        "  private final String regex = \"a+\";",
+                        "  boolean f(String value) {",
+                        "    Pattern.compile(regex);",
+                        "    Pattern.compile(this.regex);",
+                        "    return value.matches(regex);",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testNoFixInEnum() {
+        refactoringTestHelper
+                .addInputLines(
+                        "Test.java",
+                        "enum Test {",
+                        "  A(\"a\");",
+                        "  private final boolean valid;",
+                        "  Test(String value) {",
+                        "    this.valid = isValid(value);",
+                        "  }",
+                        "  static boolean isValid(String value) {",
+                        "    return value.matches(\"a+\");",
+                        "  }",
+                        "}")
+                .expectUnchanged()
+                .doTestExpectingFailure(BugCheckerRefactoringTestHelper.TestMode.TEXT_MATCH);
+    }
+}
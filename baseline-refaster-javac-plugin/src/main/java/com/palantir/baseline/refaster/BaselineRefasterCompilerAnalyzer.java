@@ -17,21 +17,37 @@
 package com.palantir.baseline.refaster;
 
 import com.google.errorprone.CodeTransformer;
-import com.google.errorprone.CompositeCodeTransformer;
+import com.google.errorprone.refaster.Refaster;
 import com.google.errorprone.refaster.RefasterRuleBuilderScanner;
+import com.google.errorprone.refaster.annotation.BeforeTemplate;
+import com.sun.source.tree.AnnotationTree;
 import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.ExpressionStatementTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.ReturnTree;
+import com.sun.source.tree.StatementTree;
+import com.sun.source.tree.Tree;
 import com.sun.source.util.TaskEvent;
 import com.sun.source.util.TaskListener;
 import com.sun.source.util.TreeScanner;
 import com.sun.tools.javac.api.JavacTrees;
+import com.sun.tools.javac.code.Symbol;
 import com.sun.tools.javac.main.JavaCompiler;
+import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.tree.TreeInfo;
 import com.sun.tools.javac.util.Context;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -44,10 +60,17 @@ import org.slf4j.LoggerFactory;
 public final class BaselineRefasterCompilerAnalyzer implements TaskListener {
 
     private static final Logger log = LoggerFactory.getLogger(BaselineRefasterCompilerAnalyzer.class);
+
+    // Only as of Java 9 is there a COMPILATION event that shows that the entire task has finished. Referenced by
+    // name so this plugin can still be built and run on Java 8.
+    static final String COMPILATION_EVENT = "COMPILATION";
+    static final boolean HAS_COMPILATION_EVENT =
+            Arrays.stream(TaskEvent.Kind.values()).anyMatch(kind -> kind.name().equals(COMPILATION_EVENT));
+
     private final Context context;
     private final Path destinationPath;
 
-    private final List<CodeTransformer> rules = new ArrayList<>();
+    private final IndexedCodeTransformer.Builder rules = IndexedCodeTransformer.builder();
 
     BaselineRefasterCompilerAnalyzer(Context context, Path destinationPath) {
         this.context = context;
@@ -60,6 +83,12 @@ public final class BaselineRefasterCompilerAnalyzer implements TaskListener {
 
     @Override
     public void finished(TaskEvent taskEvent) {
+        if (taskEvent.getKind().name().equals(COMPILATION_EVENT)) {
+            if (JavaCompiler.instance(context).errorCount() == 0) {
+                writeRules();
+            }
+            return;
+        }
         if (taskEvent.getKind() != TaskEvent.Kind.ANALYZE) {
             return;
         }
@@ -76,7 +105,11 @@ public final class BaselineRefasterCompilerAnalyzer implements TaskListener {
             @Override
             public Void visitClass(ClassTree node, Context classContext) {
                 try {
-                    rules.addAll(RefasterRuleBuilderScanner.extractRules(node, classContext));
+                    Collection<? extends CodeTransformer> classRules =
+                            RefasterRuleBuilderScanner.extractRules(node, classContext);
+                    Set<String> methodNames = beforeTemplateMethodNames(node);
+                    String ruleName = ((JCTree.JCClassDecl) node).sym.getQualifiedName().toString();
+                    classRules.forEach(rule -> rules.add(rule, ruleName, methodNames));
                 } catch (RuntimeException | Error e) {
                     log.warn("Failed to extract rules", e);
                 }
@@ -84,14 +117,79 @@ public final class BaselineRefasterCompilerAnalyzer implements TaskListener {
             }
         }.scan(tree, context);
 
-        // On every taskFinished event, update the code transformer.
-        // Only as of Java 10 is there a COMPILATION event that would show that the entire task had finished
+        // Without a COMPILATION event we can't tell which ANALYZE event is the last one, so on every event update
+        // the code transformer.
+        if (!HAS_COMPILATION_EVENT) {
+            writeRules();
+        }
+    }
+
+    private void writeRules() {
         if (!rules.isEmpty()) {
             try (ObjectOutputStream output = new ObjectOutputStream(Files.newOutputStream(destinationPath))) {
-                output.writeObject(CompositeCodeTransformer.compose(rules));
+                output.writeObject(rules.build());
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
         }
     }
+
+    /**
+     * Returns the names of the methods invoked at the root of each before template of the given rule class, or no
+     * names if any before template could match something other than an invocation of a concrete method.
+     */
+    private static Set<String> beforeTemplateMethodNames(ClassTree node) {
+        Set<String> methodNames = new HashSet<>();
+        for (Tree member : node.getMembers()) {
+            if (!(member instanceof MethodTree) || !isBeforeTemplate((MethodTree) member)) {
+                continue;
+            }
+            MethodTree method = (MethodTree) member;
+            String methodName = method.getBody() == null || method.getBody().getStatements().isEmpty()
+                    ? null
+                    : rootMethodName(method.getBody().getStatements().get(0), node);
+            if (methodName == null) {
+                return Collections.emptySet();
+            }
+            methodNames.add(methodName);
+        }
+        return methodNames;
+    }
+
+    private static boolean isBeforeTemplate(MethodTree method) {
+        for (AnnotationTree annotation : method.getModifiers().getAnnotations()) {
+            Symbol symbol = TreeInfo.symbol((JCTree) annotation.getAnnotationType());
+            if (symbol != null && symbol.getQualifiedName().contentEquals(BeforeTemplate.class.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Nullable
+    private static String rootMethodName(StatementTree statement, ClassTree ruleClass) {
+        ExpressionTree expression;
+        if (statement instanceof ReturnTree) {
+            expression = ((ReturnTree) statement).getExpression();
+        } else if (statement instanceof ExpressionStatementTree) {
+            expression = ((ExpressionStatementTree) statement).getExpression();
+        } else {
+            return null;
+        }
+        if (!(expression instanceof MethodInvocationTree)) {
+            return null;
+        }
+        Symbol symbol = TreeInfo.symbol((JCTree) ((MethodInvocationTree) expression).getMethodSelect());
+        if (symbol == null || symbol.isConstructor()) {
+            return null;
+        }
+        // Refaster.anyOf and friends, and placeholder methods declared by the rule, stand for arbitrary expressions
+        Symbol.ClassSymbol owner = symbol.enclClass();
+        if (owner == null
+                || owner.getQualifiedName().contentEquals(Refaster.class.getName())
+                || owner.outermostClass() == ((JCTree.JCClassDecl) ruleClass).sym.outermostClass()) {
+            return null;
+        }
+        return symbol.getSimpleName().toString();
+    }
 }
@@ -0,0 +1,206 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.refaster;
+
+import com.google.common.collect.ImmutableClassToInstanceMap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.errorprone.CodeTransformer;
+import com.google.errorprone.CompositeCodeTransformer;
+import com.google.errorprone.DescriptionListener;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreeScanner;
+import com.sun.tools.javac.api.MultiTaskListener;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.Options;
+import java.io.Serializable;
+import java.lang.annotation.Annotation;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link CodeTransformer} which only applies the rules that can possibly match a compilation unit.
+ *
+ * <p>Every refaster rule scans the entire compilation unit, so applying all rules to every file grows linearly with
+ * the number of rules. Rules whose before templates are all rooted at a method invocation are indexed by the invoked
+ * method names, and are skipped for compilation units which never invoke a method of that name. Remaining rules are
+ * always applied. Rules are applied in the order they were added.
+ *
+ * <p>When javac is passed {@code -XD}{@value #STATS_OPTION}{@code =<path>}, the number of compilation units each rule
+ * was attempted on, its matches, the matches which produced a fix and the time spent in the rule are written to the
+ * given path as JSON once the compilation has finished.
+ */
+final class IndexedCodeTransformer implements CodeTransformer, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    static final String STATS_OPTION = "baselineRefasterStats";
+
+    private final ImmutableList<CodeTransformer> transformers;
+    private final ImmutableList<String> names;
+    private final ImmutableSet<Integer> unanchored;
+    private final ImmutableSetMultimap<String, Integer> anchoredByMethodName;
+    private final CodeTransformer composite;
+
+    // Stats are only recorded for a single compilation, and never serialized with the rules
+    @Nullable
+    private transient RefasterStats stats;
+
+    private IndexedCodeTransformer(
+            ImmutableList<CodeTransformer> transformers,
+            ImmutableList<String> names,
+            ImmutableSet<Integer> unanchored,
+            ImmutableSetMultimap<String, Integer> anchoredByMethodName) {
+        this.transformers = transformers;
+        this.names = names;
+        this.unanchored = unanchored;
+        this.anchoredByMethodName = anchoredByMethodName;
+        this.composite = CompositeCodeTransformer.compose(transformers);
+    }
+
+    @Override
+    public void apply(TreePath path, Context context, DescriptionListener listener) {
+        BitSet candidates = new BitSet(transformers.size());
+        unanchored.forEach(candidates::set);
+        for (String methodName : invokedMethodNames(path)) {
+            anchoredByMethodName.get(methodName).forEach(candidates::set);
+        }
+        RefasterStats compilationStats = stats(context);
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            if (compilationStats == null) {
+                transformers.get(i).apply(path, context, listener);
+            } else {
+                compilationStats.apply(i, transformers.get(i), path, context, listener);
+            }
+        }
+        // Without a COMPILATION event there's no way to tell which compilation unit is the last one
+        if (compilationStats != null && !BaselineRefasterCompilerAnalyzer.HAS_COMPILATION_EVENT) {
+            compilationStats.write();
+        }
+    }
+
+    @Nullable
+    private synchronized RefasterStats stats(Context context) {
+        String statsFile = Options.instance(context).get(STATS_OPTION);
+        if (statsFile == null) {
+            return null;
+        }
+        if (stats == null || !stats.isFor(context)) {
+            stats = new RefasterStats(context, Paths.get(statsFile), names);
+            if (BaselineRefasterCompilerAnalyzer.HAS_COMPILATION_EVENT) {
+                MultiTaskListener.instance(context).add(new WriteStatsOnCompletion(stats));
+            }
+        }
+        return stats;
+    }
+
+    @Override
+    public ImmutableClassToInstanceMap<Annotation> annotations() {
+        return composite.annotations();
+    }
+
+    private static Set<String> invokedMethodNames(TreePath path) {
+        Set<String> names = new HashSet<>();
+        new TreeScanner<Void, Void>() {
+            @Override
+            public Void visitMethodInvocation(MethodInvocationTree node, Void unused) {
+                ExpressionTree select = node.getMethodSelect();
+                if (select instanceof MemberSelectTree) {
+                    names.add(((MemberSelectTree) select).getIdentifier().toString());
+                } else if (select instanceof IdentifierTree) {
+                    names.add(((IdentifierTree) select).getName().toString());
+                }
+                return super.visitMethodInvocation(node, unused);
+            }
+        }.scan(path.getCompilationUnit(), null);
+        return names;
+    }
+
+    /** Writes the stats once, when the whole compilation has finished. */
+    private static final class WriteStatsOnCompletion implements TaskListener {
+        private final RefasterStats stats;
+
+        WriteStatsOnCompletion(RefasterStats stats) {
+            this.stats = stats;
+        }
+
+        @Override
+        @SuppressWarnings("StrictUnusedVariable")
+        public void started(TaskEvent taskEvent) {}
+
+        @Override
+        public void finished(TaskEvent taskEvent) {
+            if (taskEvent.getKind().name().equals(BaselineRefasterCompilerAnalyzer.COMPILATION_EVENT)) {
+                stats.write();
+            }
+        }
+    }
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    static final class Builder {
+        private final List<CodeTransformer> transformers = new ArrayList<>();
+        private final List<String> names = new ArrayList<>();
+        private final ImmutableSet.Builder<Integer> unanchored = ImmutableSet.builder();
+        private final ImmutableSetMultimap.Builder<String, Integer> anchoredByMethodName =
+                ImmutableSetMultimap.builder();
+
+        private Builder() {}
+
+        /**
+         * Adds a transformer which can only match compilation units invoking one of the given method names, or any
+         * compilation unit if no names are given. The name identifies the rule in stats.
+         */
+        Builder add(CodeTransformer transformer, String name, Set<String> methodNames) {
+            int index = transformers.size();
+            transformers.add(transformer);
+            names.add(name);
+            if (methodNames.isEmpty()) {
+                unanchored.add(index);
+            } else {
+                methodNames.forEach(methodName -> anchoredByMethodName.put(methodName, index));
+            }
+            return this;
+        }
+
+        boolean isEmpty() {
+            return transformers.isEmpty();
+        }
+
+        IndexedCodeTransformer build() {
+            return new IndexedCodeTransformer(
+                    ImmutableList.copyOf(transformers),
+                    ImmutableList.copyOf(names),
+                    unanchored.build(),
+                    anchoredByMethodName.build());
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.refaster;
+
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.Tree;
+import com.sun.tools.javac.code.Symbol;
+
+/**
+ * Matches expressions which are cheap and have no side effects, so evaluating them eagerly rather than only on some
+ * paths doesn't change behaviour: constants, {@code null}, and reads of variables and fields. This is public with a
+ * no-arg constructor so refaster rules can reference it from {@link com.google.errorprone.refaster.annotation.Matches}.
+ */
+public final class PureExpressionMatcher implements Matcher<ExpressionTree> {
+
+    @Override
+    public boolean matches(ExpressionTree tree, VisitorState state) {
+        ExpressionTree expression = ASTHelpers.stripParentheses(tree);
+        if (expression.getKind() == Tree.Kind.NULL_LITERAL
+                || expression.getKind() == Tree.Kind.IDENTIFIER
+                || ASTHelpers.constValue(expression) != null) {
+            return true;
+        }
+        if (expression.getKind() == Tree.Kind.MEMBER_SELECT) {
+            // Fields, including class literals, qualified by a type, package or another pure expression
+            Symbol symbol = ASTHelpers.getSymbol(expression);
+            return (symbol instanceof Symbol.VarSymbol
+                            || symbol instanceof Symbol.ClassSymbol
+                            || symbol instanceof Symbol.PackageSymbol)
+                    && matches(((MemberSelectTree) expression).getExpression(), state);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.refaster;
+
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.CodeTransformer;
+import com.google.errorprone.DescriptionListener;
+import com.sun.source.util.TreePath;
+import com.sun.tools.javac.util.Context;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** Records how often and for how long each refaster rule was applied during a single compilation. */
+final class RefasterStats {
+
+    private final WeakReference<Context> context;
+    private final Path destination;
+    private final ImmutableList<String> names;
+    private final long[] attempts;
+    private final long[] matches;
+    private final long[] fixes;
+    private final long[] nanos;
+
+    RefasterStats(Context context, Path destination, ImmutableList<String> names) {
+        this.context = new WeakReference<>(context);
+        this.destination = destination;
+        this.names = names;
+        this.attempts = new long[names.size()];
+        this.matches = new long[names.size()];
+        this.fixes = new long[names.size()];
+        this.nanos = new long[names.size()];
+    }
+
+    boolean isFor(Context otherContext) {
+        return context.get() == otherContext;
+    }
+
+    /** Applies the rule with the given index, recording its matches and the time it took. */
+    synchronized void apply(
+            int index, CodeTransformer transformer, TreePath path, Context javacContext, DescriptionListener listener) {
+        long start = System.nanoTime();
+        transformer.apply(path, javacContext, description -> {
+            matches[index]++;
+            if (!description.fixes.isEmpty()) {
+                fixes[index]++;
+            }
+            listener.onDescribed(description);
+        });
+        nanos[index] += System.nanoTime() - start;
+        attempts[index]++;
+    }
+
+    /** Writes the stats recorded so far, summing rules with the same name. */
+    synchronized void write() {
+        Map<String, long[]> byName = new LinkedHashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            long[] totals = byName.computeIfAbsent(names.get(i), name -> new long[4]);
+            totals[0] += attempts[i];
+            totals[1] += matches[i];
+            totals[2] += fixes[i];
+            totals[3] += nanos[i];
+        }
+
+        StringBuilder json = new StringBuilder("{\n  \"rules\": [");
+        String separator = "\n";
+        for (Map.Entry<String, long[]> entry : byName.entrySet()) {
+            long[] totals = entry.getValue();
+            json.append(separator)
+                    .append("    {\"rule\": \"")
+                    .append(entry.getKey().replace("\\", "\\\\").replace("\"", "\\\""))
+                    .append("\", \"attempts\": ")
+                    .append(totals[0])
+                    .append(", \"matches\": ")
+                    .append(totals[1])
+                    .append(", \"fixes\": ")
+                    .append(totals[2])
+                    .append(", \"nanos\": ")
+                    .append(totals[3])
+                    .append('}');
+            separator = ",\n";
+        }
+        json.append("\n  ]\n}\n");
+
+        try {
+            Files.createDirectories(destination.toAbsolutePath().getParent());
+            Path temporary = Files.createTempFile(destination.toAbsolutePath().getParent(), "stats", ".json");
+            Files.write(temporary, json.toString().getBytes(StandardCharsets.UTF_8));
+            Files.move(temporary, destination, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write refaster stats to " + destination, e);
+        }
+    }
+}
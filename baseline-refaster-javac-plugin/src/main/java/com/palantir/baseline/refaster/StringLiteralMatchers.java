@@ -0,0 +1,63 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.refaster;
+
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.ExpressionTree;
+
+/**
+ * Matchers for string constants which behave identically whether or not they are interpreted as regular expressions.
+ * These are public with a no-arg constructor so refaster rules can reference them from
+ * {@link com.google.errorprone.refaster.annotation.Matches}, and live alongside the compiler plugin because that is on
+ * the classpath both when rules are compiled and when they are applied.
+ */
+public final class StringLiteralMatchers {
+
+    private static final String REGEX_METACHARACTERS = "\\^$.|?*+()[]{}";
+    private static final String REPLACEMENT_METACHARACTERS = "\\$";
+
+    private StringLiteralMatchers() {}
+
+    /** Matches non-empty string constants without regular expression metacharacters, which only match themselves. */
+    public static final class RegexFreeLiteral implements Matcher<ExpressionTree> {
+        @Override
+        public boolean matches(ExpressionTree tree, VisitorState state) {
+            String value = ASTHelpers.constValue(tree, String.class);
+            return value != null && !value.isEmpty() && containsNone(value, REGEX_METACHARACTERS);
+        }
+    }
+
+    /** Matches string constants which are inserted verbatim when used as a regular expression replacement. */
+    public static final class RegexFreeReplacement implements Matcher<ExpressionTree> {
+        @Override
+        public boolean matches(ExpressionTree tree, VisitorState state) {
+            String value = ASTHelpers.constValue(tree, String.class);
+            return value != null && containsNone(value, REPLACEMENT_METACHARACTERS);
+        }
+    }
+
+    private static boolean containsNone(String value, String characters) {
+        for (int i = 0; i < value.length(); i++) {
+            if (characters.indexOf(value.charAt(i)) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
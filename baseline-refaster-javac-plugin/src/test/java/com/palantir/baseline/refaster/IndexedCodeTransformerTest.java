@@ -0,0 +1,160 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.refaster;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.CodeTransformer;
+import com.google.errorprone.CompositeCodeTransformer;
+import com.google.errorprone.apply.DescriptionBasedDiff;
+import com.google.errorprone.apply.ImportOrganizer;
+import com.google.errorprone.apply.SourceFile;
+import com.google.errorprone.refaster.RefasterRuleBuilderScanner;
+import com.google.testing.compile.JavaFileObjects;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreeScanner;
+import com.sun.tools.javac.api.JavacTool;
+import com.sun.tools.javac.tree.JCTree;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaFileObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Verifies the indexed rules produce exactly the same changes as applying every rule to every compilation unit. */
+public class IndexedCodeTransformerTest {
+
+    private static final JavaFileObject RULES = JavaFileObjects.forSourceLines(
+            "test.Rules",
+            "package test;",
+            "import com.google.errorprone.refaster.annotation.AfterTemplate;",
+            "import com.google.errorprone.refaster.annotation.BeforeTemplate;",
+            "public final class Rules {",
+            "  public static final class EqualsEmpty {",
+            "    @BeforeTemplate boolean before(String s) { return s.equals(\"\"); }",
+            "    @AfterTemplate boolean after(String s) { return s.isEmpty(); }",
+            "  }",
+            "  public static final class NewStringCopy {",
+            "    @BeforeTemplate String before(String s) { return new String(s); }",
+            "    @AfterTemplate String after(String s) { return s; }",
+            "  }",
+            "  public static final class ConcatEmpty {",
+            "    @BeforeTemplate String before(String s) { return \"\" + s; }",
+            "    @AfterTemplate String after(String s) { return String.valueOf(s); }",
+            "  }",
+            "}");
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testMatchesAllRules() throws IOException {
+        assertEquivalent(
+                "test.Input",
+                "package test;",
+                "import java.util.stream.Stream;",
+                "class Input {",
+                "  boolean a(String s) { return s.equals(\"\"); }",
+                "  String b(String s) { return new String(s); }",
+                "  String c(String s) { return \"\" + s; }",
+                "  long d(Stream<String> s) { return s.filter(x -> x.equals(\"\")).count(); }",
+                "}");
+    }
+
+    @Test
+    public void testMethodReferencesAndConstructors() throws IOException {
+        assertEquivalent(
+                "test.Input",
+                "package test;",
+                "import java.util.function.Function;",
+                "import java.util.function.Predicate;",
+                "class Input {",
+                "  Predicate<String> a() { return \"\"::equals; }",
+                "  Function<String, String> b() { return String::new; }",
+                "  String c(String s) { return new String(s); }",
+                "}");
+    }
+
+    private void assertEquivalent(String name, String... lines) throws IOException {
+        JavaFileObject input = JavaFileObjects.forSourceLines(name, lines);
+        String indexed = apply(compileIndexedRules(), input);
+        String composite = apply(CompositeCodeTransformer.compose(extractRules()), input);
+        assertThat(composite).isNotEqualTo(String.join("\n", lines));
+        assertThat(indexed).isEqualTo(composite);
+    }
+
+    /** Compiles the rules with the compiler plugin, as the compileRefaster task does. */
+    private CodeTransformer compileIndexedRules() throws IOException {
+        Path out = temporaryFolder.getRoot().toPath().resolve("rules.refaster");
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        boolean success = JavacTool.create()
+                .getTask(
+                        null,
+                        null,
+                        diagnostics,
+                        ImmutableList.of(
+                                "-Xplugin:BaselineRefasterCompiler --out " + out,
+                                "-d",
+                                temporaryFolder.newFolder().getAbsolutePath()),
+                        null,
+                        ImmutableList.of(RULES))
+                .call();
+        assertThat(success).describedAs("%s", diagnostics.getDiagnostics()).isTrue();
+        try (ObjectInputStream stream = new ObjectInputStream(Files.newInputStream(out))) {
+            Object rules = stream.readObject();
+            assertThat(rules).isInstanceOf(IndexedCodeTransformer.class);
+            return (CodeTransformer) rules;
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static List<CodeTransformer> extractRules() {
+        CompilerUtility.CompilerResult result = CompilerUtility.compile(RULES);
+        List<CodeTransformer> rules = new ArrayList<>();
+        for (CompilationUnitTree compilationUnit : result.compilationUnits()) {
+            new TreeScanner<Void, Void>() {
+                @Override
+                public Void visitClass(ClassTree node, Void unused) {
+                    rules.addAll(RefasterRuleBuilderScanner.extractRules(node, result.context()));
+                    return super.visitClass(node, unused);
+                }
+            }.scan(compilationUnit, null);
+        }
+        return rules;
+    }
+
+    private static String apply(CodeTransformer transformer, JavaFileObject input) throws IOException {
+        CompilerUtility.CompilerResult result = CompilerUtility.compile(input);
+        assertThat(result.diagnostics()).isEmpty();
+        JCTree.JCCompilationUnit tree = (JCTree.JCCompilationUnit) result.compilationUnits().get(0);
+        DescriptionBasedDiff diff = DescriptionBasedDiff.create(tree, ImportOrganizer.STATIC_FIRST_ORGANIZER);
+        transformer.apply(new TreePath(tree), result.context(), diff);
+        SourceFile sourceFile = SourceFile.create(input);
+        diff.applyDifferences(sourceFile);
+        return sourceFile.getSourceText();
+    }
+}
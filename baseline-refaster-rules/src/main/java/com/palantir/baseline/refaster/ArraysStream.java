@@ -0,0 +1,42 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.refaster;
+
+import com.google.errorprone.refaster.annotation.AfterTemplate;
+import com.google.errorprone.refaster.annotation.BeforeTemplate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+/** Streams an array directly rather than through one or two list copies. */
+public final class ArraysStream<E> {
+
+    @BeforeTemplate
+    Stream<E> asList(E[] elements) {
+        return Arrays.asList(elements).stream();
+    }
+
+    @BeforeTemplate
+    Stream<E> arrayListCopy(E[] elements) {
+        return new ArrayList<>(Arrays.asList(elements)).stream();
+    }
+
+    @AfterTemplate
+    Stream<E> after(E[] elements) {
+        return Arrays.stream(elements);
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.refaster;
+
+import com.google.errorprone.refaster.annotation.AfterTemplate;
+import com.google.errorprone.refaster.annotation.BeforeTemplate;
+import java.util.HashMap;
+import java.util.Map;
+
+/** The copy constructor sizes the map up front, rather than resizing it while entries are added. */
+public final class HashMapPutAllConstructor<K, V> {
+
+    @BeforeTemplate
+    void before(Map<? extends K, ? extends V> entries) {
+        Map<K, V> map = new HashMap<>();
+        map.putAll(entries);
+    }
+
+    @AfterTemplate
+    void after(Map<? extends K, ? extends V> entries) {
+        Map<K, V> map = new HashMap<>(entries);
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.refaster;
+
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.refaster.annotation.AfterTemplate;
+import com.google.errorprone.refaster.annotation.BeforeTemplate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/** Collects directly into an immutable list instead of copying an intermediate list. */
+public final class ImmutableListCopyOfCollect<E> {
+
+    @BeforeTemplate
+    ImmutableList<E> before(Stream<E> stream) {
+        return ImmutableList.copyOf(stream.collect(Collectors.toList()));
+    }
+
+    @AfterTemplate
+    ImmutableList<E> after(Stream<E> stream) {
+        return stream.collect(ImmutableList.toImmutableList());
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.refaster;
+
+import com.google.errorprone.refaster.annotation.AfterTemplate;
+import com.google.errorprone.refaster.annotation.BeforeTemplate;
+import com.google.errorprone.refaster.annotation.Matches;
+import java.util.Map;
+
+/**
+ * Looks the key up once rather than twice. The default is only evaluated when the key is absent before, but always
+ * after, so only defaults without side effects are rewritten.
+ */
+public final class MapGetOrDefault<K, V> {
+
+    @BeforeTemplate
+    V before(Map<K, V> map, K key, @Matches(PureExpressionMatcher.class) V defaultValue) {
+        return map.containsKey(key) ? map.get(key) : defaultValue;
+    }
+
+    @AfterTemplate
+    V after(Map<K, V> map, K key, V defaultValue) {
+        return map.getOrDefault(key, defaultValue);
+    }
+}
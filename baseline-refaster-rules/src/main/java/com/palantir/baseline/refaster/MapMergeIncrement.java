@@ -0,0 +1,40 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.refaster;
+
+import com.google.errorprone.refaster.annotation.AfterTemplate;
+import com.google.errorprone.refaster.annotation.BeforeTemplate;
+import java.util.Map;
+
+/** Increments a counter with a single lookup rather than reading and then writing the entry. */
+public final class MapMergeIncrement<K> {
+
+    @BeforeTemplate
+    void getOrDefault(Map<K, Integer> map, K key) {
+        map.put(key, map.getOrDefault(key, 0) + 1);
+    }
+
+    @BeforeTemplate
+    void containsKey(Map<K, Integer> map, K key) {
+        map.put(key, map.containsKey(key) ? map.get(key) + 1 : 1);
+    }
+
+    @AfterTemplate
+    void after(Map<K, Integer> map, K key) {
+        map.merge(key, 1, Integer::sum);
+    }
+}
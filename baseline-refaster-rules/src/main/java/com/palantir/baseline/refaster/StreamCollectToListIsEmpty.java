@@ -0,0 +1,44 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.refaster;
+
+import com.google.errorprone.refaster.annotation.AfterTemplate;
+import com.google.errorprone.refaster.annotation.AlsoNegation;
+import com.google.errorprone.refaster.annotation.BeforeTemplate;
+import java.util.Collection;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Stops at the first matching element rather than collecting the entire stream, so like
+ * {@link java.util.stream.Stream#anyMatch} the predicate is not evaluated for later elements. Only filtered
+ * collections are matched, so no {@code map} or {@code peek} stage has its side effects skipped. Unlike
+ * {@code findAny().isPresent()}, this doesn't throw if the first match is null.
+ */
+public final class StreamCollectToListIsEmpty<T> {
+
+    @BeforeTemplate
+    boolean before(Collection<T> collection, Predicate<? super T> predicate) {
+        return collection.stream().filter(predicate).collect(Collectors.toList()).isEmpty();
+    }
+
+    @AfterTemplate
+    @AlsoNegation
+    boolean after(Collection<T> collection, Predicate<? super T> predicate) {
+        return collection.stream().noneMatch(predicate);
+    }
+}
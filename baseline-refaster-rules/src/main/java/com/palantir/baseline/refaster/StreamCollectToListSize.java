@@ -0,0 +1,42 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.refaster;
+
+import com.google.errorprone.refaster.annotation.AfterTemplate;
+import com.google.errorprone.refaster.annotation.BeforeTemplate;
+import java.util.Collection;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Counts elements without collecting them into a list. A list can never hold more than {@link Integer#MAX_VALUE}
+ * elements, so the narrowing conversion can't fail where the original code succeeded. Only filtered collections are
+ * matched: {@link java.util.stream.Stream#count()} may skip stages such as {@code map} and {@code peek} when the
+ * size is known up front, but a filtered stream has no known size, so the predicate still runs for every element.
+ */
+public final class StreamCollectToListSize<T> {
+
+    @BeforeTemplate
+    int before(Collection<T> collection, Predicate<? super T> predicate) {
+        return collection.stream().filter(predicate).collect(Collectors.toList()).size();
+    }
+
+    @AfterTemplate
+    int after(Collection<T> collection, Predicate<? super T> predicate) {
+        return Math.toIntExact(collection.stream().filter(predicate).count());
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.refaster;
+
+import com.google.errorprone.refaster.annotation.AfterTemplate;
+import com.google.errorprone.refaster.annotation.BeforeTemplate;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+public final class StreamNoneMatch<T> {
+
+    @BeforeTemplate
+    boolean before(Stream<T> stream, Predicate<? super T> predicate) {
+        return !stream.anyMatch(predicate);
+    }
+
+    @AfterTemplate
+    boolean after(Stream<T> stream, Predicate<? super T> predicate) {
+        return stream.noneMatch(predicate);
+    }
+}
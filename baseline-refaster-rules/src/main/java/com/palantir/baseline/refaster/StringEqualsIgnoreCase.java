@@ -0,0 +1,51 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.refaster;
+
+import com.google.errorprone.refaster.Refaster;
+import com.google.errorprone.refaster.annotation.AfterTemplate;
+import com.google.errorprone.refaster.annotation.BeforeTemplate;
+import java.util.Locale;
+
+/**
+ * Compares strings without allocating case-converted copies of both.
+ *
+ * <p>Only conversions using {@link Locale#ROOT} or {@link Locale#ENGLISH} are rewritten, as other locales map
+ * characters such as the Turkish dotted and dotless i differently. Two differences remain: {@link String#toLowerCase}
+ * and {@link String#toUpperCase} apply full case mappings ({@code "ß"} upper cases to {@code "SS"}) whereas
+ * {@link String#equalsIgnoreCase} compares characters one at a time, and a null {@code second} no longer throws but
+ * compares unequal.
+ */
+public final class StringEqualsIgnoreCase {
+
+    @BeforeTemplate
+    boolean lowerCase(String first, String second) {
+        return first.toLowerCase(Refaster.anyOf(Locale.ROOT, Locale.ENGLISH))
+                .equals(second.toLowerCase(Refaster.anyOf(Locale.ROOT, Locale.ENGLISH)));
+    }
+
+    @BeforeTemplate
+    boolean upperCase(String first, String second) {
+        return first.toUpperCase(Refaster.anyOf(Locale.ROOT, Locale.ENGLISH))
+                .equals(second.toUpperCase(Refaster.anyOf(Locale.ROOT, Locale.ENGLISH)));
+    }
+
+    @AfterTemplate
+    boolean after(String first, String second) {
+        return first.equalsIgnoreCase(second);
+    }
+}
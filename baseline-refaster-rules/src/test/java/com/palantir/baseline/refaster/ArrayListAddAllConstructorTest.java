@@ -0,0 +1,50 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.refaster;
+
+import org.junit.Test;
+
+public class ArrayListAddAllConstructorTest {
+
+    @Test
+    public void test() {
+        RefasterTestHelper.forRefactoring(ArrayListAddAllConstructor.class)
+                .withInputLines(
+                        "Test",
+                        "import java.util.ArrayList;",
+                        "import java.util.Collection;",
+                        "import java.util.List;",
+                        "public class Test {",
+                        "  List<String> f(Collection<String> elements) {",
+                        "    List<String> list = new ArrayList<>();",
+                        "    list.addAll(elements);",
+                        "    return list;",
+                        "  }",
+                        "}")
+                .hasOutputLines(
+                        "import java.util.ArrayList;",
+                        "import java.util.Collection;",
+                        "import java.util.List;",
+                        "public class Test {",
+                        "  List<String> f(Collection<String> elements) {",
+                        "    List<String> list = new ArrayList<>(elements);",
+                        "    ",
+                        "    return list;",
+                        "  }",
+                        "}");
+    }
+}
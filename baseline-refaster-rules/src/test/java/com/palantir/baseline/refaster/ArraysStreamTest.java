@@ -0,0 +1,68 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.refaster;
+
+import org.junit.Test;
+
+public class ArraysStreamTest {
+
+    @Test
+    public void asList() {
+        RefasterTestHelper.forRefactoring(ArraysStream.class)
+                .withInputLines(
+                        "Test",
+                        "import java.util.Arrays;",
+                        "import java.util.stream.Stream;",
+                        "public class Test {",
+                        "  Stream<String> f(String[] elements) {",
+                        "    return Arrays.asList(elements).stream();",
+                        "  }",
+                        "}")
+                .hasOutputLines(
+                        "import java.util.Arrays;",
+                        "import java.util.stream.Stream;",
+                        "public class Test {",
+                        "  Stream<String> f(String[] elements) {",
+                        "    return Arrays.stream(elements);",
+                        "  }",
+                        "}");
+    }
+
+    @Test
+    public void arrayListCopy() {
+        RefasterTestHelper.forRefactoring(ArraysStream.class)
+                .withInputLines(
+                        "Test",
+                        "import java.util.ArrayList;",
+                        "import java.util.Arrays;",
+                        "import java.util.stream.Stream;",
+                        "public class Test {",
+                        "  Stream<String> f(String[] elements) {",
+                        "    return new ArrayList<>(Arrays.asList(elements)).stream();",
+                        "  }",
+                        "}")
+                .hasOutputLines(
+                        "import java.util.ArrayList;",
+                        "import java.util.Arrays;",
+                        "import java.util.stream.Stream;",
+                        "public class Test {",
+                        "  Stream<String> f(String[] elements) {",
+                        "    return Arrays.stream(elements);",
+                        "  }",
+                        "}");
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.refaster;
+
+import org.junit.Test;
+
+public class HashMapPutAllConstructorTest {
+
+    @Test
+    public void test() {
+        RefasterTestHelper.forRefactoring(HashMapPutAllConstructor.class)
+                .withInputLines(
+                        "Test",
+                        "import java.util.HashMap;",
+                        "import java.util.Map;",
+                        "public class Test {",
+                        "  Map<String, Integer> f(Map<String, Integer> entries) {",
+                        "    Map<String, Integer> map = new HashMap<>();",
+                        "    map.putAll(entries);",
+                        "    return map;",
+                        "  }",
+                        "}")
+                .hasOutputLines(
+                        "import java.util.HashMap;",
+                        "import java.util.Map;",
+                        "public class Test {",
+                        "  Map<String, Integer> f(Map<String, Integer> entries) {",
+                        "    Map<String, Integer> map = new HashMap<>(entries);",
+                        "    ",
+                        "    return map;",
+                        "  }",
+                        "}");
+    }
+}
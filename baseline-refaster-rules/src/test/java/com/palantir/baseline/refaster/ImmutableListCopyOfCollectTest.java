@@ -0,0 +1,46 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.refaster;
+
+import org.junit.Test;
+
+public class ImmutableListCopyOfCollectTest {
+
+    @Test
+    public void test() {
+        RefasterTestHelper.forRefactoring(ImmutableListCopyOfCollect.class)
+                .withInputLines(
+                        "Test",
+                        "import com.google.common.collect.ImmutableList;",
+                        "import java.util.stream.Collectors;",
+                        "import java.util.stream.Stream;",
+                        "public class Test {",
+                        "  ImmutableList<String> f(Stream<String> stream) {",
+                        "    return ImmutableList.copyOf(stream.collect(Collectors.toList()));",
+                        "  }",
+                        "}")
+                .hasOutputLines(
+                        "import com.google.common.collect.ImmutableList;",
+                        "import java.util.stream.Collectors;",
+                        "import java.util.stream.Stream;",
+                        "public class Test {",
+                        "  ImmutableList<String> f(Stream<String> stream) {",
+                        "    return stream.collect(ImmutableList.toImmutableList());",
+                        "  }",
+                        "}");
+    }
+}
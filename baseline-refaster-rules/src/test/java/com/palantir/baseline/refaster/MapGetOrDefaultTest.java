@@ -0,0 +1,62 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.refaster;
+
+import org.junit.Test;
+
+public class MapGetOrDefaultTest {
+
+    @Test
+    public void test() {
+        RefasterTestHelper.forRefactoring(MapGetOrDefault.class)
+                .withInputLines(
+                        "Test",
+                        "import java.util.Map;",
+                        "public class Test {",
+                        "  String f(Map<String, String> map, String key, String fallback) {",
+                        "    return map.containsKey(key) ? map.get(key) : fallback;",
+                        "  }",
+                        "}")
+                .hasOutputLines(
+                        "import java.util.Map;",
+                        "public class Test {",
+                        "  String f(Map<String, String> map, String key, String fallback) {",
+                        "    return map.getOrDefault(key, fallback);",
+                        "  }",
+                        "}");
+    }
+
+    @Test
+    public void testSideEffectsNotRewritten() {
+        RefasterTestHelper.forRefactoring(MapGetOrDefault.class)
+                .withInputLines(
+                        "Test",
+                        "import java.util.Map;",
+                        "public class Test {",
+                        "  String f(Map<String, String> map, String key) {",
+                        "    return map.containsKey(key) ? map.get(key) : String.valueOf(map.size());",
+                        "  }",
+                        "}")
+                .hasOutputLines(
+                        "import java.util.Map;",
+                        "public class Test {",
+                        "  String f(Map<String, String> map, String key) {",
+                        "    return map.containsKey(key) ? map.get(key) : String.valueOf(map.size());",
+                        "  }",
+                        "}");
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.refaster;
+
+import org.junit.Test;
+
+public class MapMergeIncrementTest {
+
+    @Test
+    public void getOrDefault() {
+        RefasterTestHelper.forRefactoring(MapMergeIncrement.class)
+                .withInputLines(
+                        "Test",
+                        "import java.util.Map;",
+                        "public class Test {",
+                        "  void f(Map<String, Integer> map, String key) {",
+                        "    map.put(key, map.getOrDefault(key, 0) + 1);",
+                        "  }",
+                        "}")
+                .hasOutputLines(
+                        "import java.util.Map;",
+                        "public class Test {",
+                        "  void f(Map<String, Integer> map, String key) {",
+                        "    map.merge(key, 1, Integer::sum);",
+                        "  }",
+                        "}");
+    }
+
+    @Test
+    public void containsKey() {
+        RefasterTestHelper.forRefactoring(MapMergeIncrement.class)
+                .withInputLines(
+                        "Test",
+                        "import java.util.Map;",
+                        "public class Test {",
+                        "  void f(Map<String, Integer> map, String key) {",
+                        "    map.put(key, map.containsKey(key) ? map.get(key) + 1 : 1);",
+                        "  }",
+                        "}")
+                .hasOutputLines(
+                        "import java.util.Map;",
+                        "public class Test {",
+                        "  void f(Map<String, Integer> map, String key) {",
+                        "    map.merge(key, 1, Integer::sum);",
+                        "  }",
+                        "}");
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.refaster;
+
+import org.junit.Test;
+
+public class StreamCollectToListSizeTest {
+
+    @Test
+    public void test() {
+        RefasterTestHelper.forRefactoring(StreamCollectToListSize.class)
+                .withInputLines(
+                        "Test",
+                        "import java.util.List;",
+                        "import java.util.stream.Collectors;",
+                        "public class Test {",
+                        "  int f(List<String> list) {",
+                        "    return list.stream().filter(s -> s.isEmpty()).collect(Collectors.toList()).size();",
+                        "  }",
+                        "}")
+                .hasOutputLines(
+                        "import java.util.List;",
+                        "import java.util.stream.Collectors;",
+                        "public class Test {",
+                        "  int f(List<String> list) {",
+                        "    return Math.toIntExact(list.stream().filter(s -> s.isEmpty()).count());",
+                        "  }",
+                        "}");
+    }
+
+    @Test
+    public void unfiltered() {
+        RefasterTestHelper.forRefactoring(StreamCollectToListSize.class)
+                .withInputLines(
+                        "Test",
+                        "import java.util.List;",
+                        "import java.util.stream.Collectors;",
+                        "public class Test {",
+                        "  int f(List<String> list) {",
+                        "    return list.stream().map(s -> s.trim()).collect(Collectors.toList()).size();",
+                        "  }",
+                        "}")
+                .hasOutputLines(
+                        "import java.util.List;",
+                        "import java.util.stream.Collectors;",
+                        "public class Test {",
+                        "  int f(List<String> list) {",
+                        "    return list.stream().map(s -> s.trim()).collect(Collectors.toList()).size();",
+                        "  }",
+                        "}");
+    }
+}
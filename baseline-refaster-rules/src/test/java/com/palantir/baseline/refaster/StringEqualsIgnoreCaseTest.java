@@ -0,0 +1,80 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.refaster;
+
+import org.junit.Test;
+
+public class StringEqualsIgnoreCaseTest {
+
+    @Test
+    public void lowerCase() {
+        RefasterTestHelper.forRefactoring(StringEqualsIgnoreCase.class)
+                .withInputLines(
+                        "Test",
+                        "import java.util.Locale;",
+                        "public class Test {",
+                        "  boolean f(String first, String second) {",
+                        "    return first.toLowerCase(Locale.ROOT).equals(second.toLowerCase(Locale.ROOT));",
+                        "  }",
+                        "}")
+                .hasOutputLines(
+                        "import java.util.Locale;",
+                        "public class Test {",
+                        "  boolean f(String first, String second) {",
+                        "    return first.equalsIgnoreCase(second);",
+                        "  }",
+                        "}");
+    }
+
+    @Test
+    public void upperCase() {
+        RefasterTestHelper.forRefactoring(StringEqualsIgnoreCase.class)
+                .withInputLines(
+                        "Test",
+                        "import java.util.Locale;",
+                        "public class Test {",
+                        "  boolean f(String first, String second) {",
+                        "    return first.toUpperCase(Locale.ENGLISH).equals(second.toUpperCase(Locale.ENGLISH));",
+                        "  }",
+                        "}")
+                .hasOutputLines(
+                        "import java.util.Locale;",
+                        "public class Test {",
+                        "  boolean f(String first, String second) {",
+                        "    return first.equalsIgnoreCase(second);",
+                        "  }",
+                        "}");
+    }
+
+    @Test
+    public void defaultLocaleIsNotRewritten() {
+        RefasterTestHelper.forRefactoring(StringEqualsIgnoreCase.class)
+                .withInputLines(
+                        "Test",
+                        "public class Test {",
+                        "  boolean f(String first, String second) {",
+                        "    return first.toLowerCase().equals(second.toLowerCase());",
+                        "  }",
+                        "}")
+                .hasOutputLines(
+                        "public class Test {",
+                        "  boolean f(String first, String second) {",
+                        "    return first.toLowerCase().equals(second.toLowerCase());",
+                        "  }",
+                        "}");
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.refaster;
+
+import org.junit.Test;
+
+public class StringReplaceAllLiteralTest {
+
+    @Test
+    public void literal() {
+        RefasterTestHelper.forRefactoring(StringReplaceAllLiteral.class)
+                .withInputLines(
+                        "Test",
+                        "public class Test {",
+                        "  String f(String value) {",
+                        "    return value.replaceAll(\"/\", \"-\");",
+                        "  }",
+                        "}")
+                .hasOutputLines(
+                        "public class Test {",
+                        "  String f(String value) {",
+                        "    return value.replace(\"/\", \"-\");",
+                        "  }",
+                        "}");
+    }
+
+    @Test
+    public void emptyReplacement() {
+        RefasterTestHelper.forRefactoring(StringReplaceAllLiteral.class)
+                .withInputLines(
+                        "Test",
+                        "public class Test {",
+                        "  String f(String value) {",
+                        "    return value.replaceAll(\"-\", \"\");",
+                        "  }",
+                        "}")
+                .hasOutputLines(
+                        "public class Test {",
+                        "  String f(String value) {",
+                        "    return value.replace(\"-\", \"\");",
+                        "  }",
+                        "}");
+    }
+
+    @Test
+    public void regex() {
+        RefasterTestHelper.forRefactoring(StringReplaceAllLiteral.class)
+                .withInputLines(
+                        "Test",
+                        "public class Test {",
+                        "  String f(String value) {",
+                        "    return value.replaceAll(\".\", \"-\");",
+                        "  }",
+                        "}")
+                .hasOutputLines(
+                        "public class Test {",
+                        "  String f(String value) {",
+                        "    return value.replaceAll(\".\", \"-\");",
+                        "  }",
+                        "}");
+    }
+
+    @Test
+    public void groupReference() {
+        RefasterTestHelper.forRefactoring(StringReplaceAllLiteral.class)
+                .withInputLines(
+                        "Test",
+                        "public class Test {",
+                        "  String f(String value) {",
+                        "    return value.replaceAll(\"a\", \"$0\");",
+                        "  }",
+                        "}")
+                .hasOutputLines(
+                        "public class Test {",
+                        "  String f(String value) {",
+                        "    return value.replaceAll(\"a\", \"$0\");",
+                        "  }",
+                        "}");
+    }
+}
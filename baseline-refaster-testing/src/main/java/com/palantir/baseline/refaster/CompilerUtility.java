@@ -33,17 +33,21 @@ import javax.tools.StandardJavaFileManager;
 
 final class CompilerUtility {
 
+    // Opening the platform and classpath archives dominates the cost of compiling a small test input, so each thread
+    // reuses a file manager which has already indexed them. File managers are not thread safe, hence one per thread
+    // rather than one shared instance.
+    private static final ThreadLocal<StandardJavaFileManager> FILE_MANAGER = ThreadLocal.withInitial(() ->
+            JavacTool.create().getStandardFileManager(null, Locale.ENGLISH, StandardCharsets.UTF_8));
+
     private CompilerUtility() {}
 
     static CompilerResult compile(JavaFileObject javaFileObject) {
         JavaCompiler compiler = JavacTool.create();
         DiagnosticCollector<JavaFileObject> diagnosticsCollector = new DiagnosticCollector<>();
-        StandardJavaFileManager fileManager =
-                compiler.getStandardFileManager(diagnosticsCollector, Locale.ENGLISH, StandardCharsets.UTF_8);
 
         JavacTaskImpl task = (JavacTaskImpl) compiler.getTask(
                 CharStreams.nullWriter(),
-                fileManager,
+                FILE_MANAGER.get(),
                 diagnosticsCollector,
                 ImmutableList.of(),
                 null,
@@ -36,12 +36,18 @@ import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.tools.JavaFileObject;
 import org.assertj.core.api.Assertions;
 
 @SuppressWarnings("PreferSafeLoggableExceptions")
 public final class RefasterTestHelper {
 
+    // Rules are immutable once extracted, so every test of the same rule class shares them instead of compiling the
+    // rule source again.
+    private static final Map<Class<?>, ImmutableList<CodeTransformer>> TRANSFORMERS = new ConcurrentHashMap<>();
+
     private final List<CodeTransformer> transformers;
 
     /** The source code of the given refaster rule should exist in {@code src/main/java}. */
@@ -59,7 +65,7 @@ public final class RefasterTestHelper {
             throw new IllegalArgumentException("at least one rule class is required");
         }
         this.transformers = Arrays.stream(refasterRuleClasses)
-                .map(RefasterTestHelper::transformersForClass)
+                .map(ruleClass -> TRANSFORMERS.computeIfAbsent(ruleClass, RefasterTestHelper::transformersForClass))
                 .flatMap(Collection::stream)
                 .collect(ImmutableList.toImmutableList());
     }
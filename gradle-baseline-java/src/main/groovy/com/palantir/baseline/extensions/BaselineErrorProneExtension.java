@@ -60,13 +60,24 @@ public class BaselineErrorProneExtension {
             "PreferJavaTimeOverload");
 
     private final ListProperty<String> patchChecks;
+    private final ListProperty<String> heavyweightObjectTypes;
 
     public BaselineErrorProneExtension(Project project) {
         patchChecks = project.getObjects().listProperty(String.class);
         patchChecks.set(DEFAULT_PATCH_CHECKS);
+        heavyweightObjectTypes = project.getObjects().listProperty(String.class);
+        heavyweightObjectTypes.set(ImmutableList.of());
     }
 
     public final ListProperty<String> getPatchChecks() {
         return patchChecks;
     }
+
+    /**
+     * Fully qualified names of expensive, thread-safe types which the {@code HeavyweightObjectPerCall} check should
+     * flag when created per call, in addition to its built-in catalog.
+     */
+    public final ListProperty<String> getHeavyweightObjectTypes() {
+        return heavyweightObjectTypes;
+    }
 }
@@ -19,31 +19,39 @@ package com.palantir.baseline.plugins;
 import com.google.common.base.Joiner;
 import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.MoreCollectors;
 import com.palantir.baseline.extensions.BaselineErrorProneExtension;
 import com.palantir.baseline.tasks.CompileRefasterTask;
+import com.palantir.baseline.tasks.ExtractRefasterSourcesTransform;
+import com.palantir.baseline.tasks.RefasterStatsTask;
 import java.io.File;
 import java.nio.file.Paths;
 import java.util.AbstractList;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import net.ltgt.gradle.errorprone.CheckSeverity;
 import net.ltgt.gradle.errorprone.ErrorProneOptions;
 import net.ltgt.gradle.errorprone.ErrorPronePlugin;
+import org.gradle.api.Action;
 import org.gradle.api.JavaVersion;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
+import org.gradle.api.Task;
 import org.gradle.api.artifacts.Configuration;
-import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.result.ResolvedDependencyResult;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.file.RegularFile;
 import org.gradle.api.logging.Logger;
@@ -51,7 +59,6 @@ import org.gradle.api.logging.Logging;
 import org.gradle.api.plugins.ExtensionAware;
 import org.gradle.api.plugins.JavaPluginConvention;
 import org.gradle.api.provider.Provider;
-import org.gradle.api.specs.Spec;
 import org.gradle.api.tasks.SourceSet;
 import org.gradle.api.tasks.compile.JavaCompile;
 import org.gradle.api.tasks.javadoc.Javadoc;
@@ -64,10 +71,16 @@ public final class BaselineErrorProne implements Plugin<Project> {
     private static final String ERROR_PRONE_JAVAC_VERSION = "9+181-r4173-1";
     private static final String PROP_ERROR_PRONE_APPLY = "errorProneApply";
     private static final String PROP_REFASTER_APPLY = "refasterApply";
+    private static final String REFASTER_STATS_OPTION = "baselineRefasterStats";
+    private static final String REFASTER_STATS_TASK = "refasterStats";
+    private static final String HEAVYWEIGHT_OBJECT_TYPES_FLAG = "HeavyweightObjectPerCall:AdditionalTypes";
     private static final String DISABLE_PROPERY = "com.palantir.baseline-error-prone.disable";
 
     @Override
     public void apply(Project project) {
+        if (project.equals(project.getRootProject()) && isRefasterRefactoring(project)) {
+            registerRefasterStats(project);
+        }
         project.getPluginManager().withPlugin("java", unused -> {
             applyToJavaProject(project);
         });
@@ -77,6 +90,7 @@ public final class BaselineErrorProne implements Plugin<Project> {
         BaselineErrorProneExtension errorProneExtension =
                 project.getExtensions().create(EXTENSION_NAME, BaselineErrorProneExtension.class, project);
         project.getPluginManager().apply(ErrorPronePlugin.class);
+        ClasspathCapabilities classpathCapabilities = ClasspathCapabilities.forBuild(project.getGradle());
 
         String version = Optional.ofNullable(
                         BaselineErrorProne.class.getPackage().getImplementationVersion())
@@ -95,9 +109,24 @@ public final class BaselineErrorProne implements Plugin<Project> {
 
         project.getDependencies()
                 .add(ErrorPronePlugin.CONFIGURATION_NAME, "com.palantir.baseline:baseline-error-prone:" + version);
+        // Compiled refaster rules reference classes from the compiler plugin, which must be present to load them
+        project.getDependencies()
+                .add(
+                        ErrorPronePlugin.CONFIGURATION_NAME,
+                        "com.palantir.baseline:baseline-refaster-javac-plugin:" + version);
         project.getDependencies()
                 .add("refasterCompiler", "com.palantir.baseline:baseline-refaster-javac-plugin:" + version);
 
+        for (String artifactType : ImmutableList.of("jar", "java")) {
+            project.getDependencies().registerTransform(ExtractRefasterSourcesTransform.class, spec -> {
+                spec.getFrom().attribute(ExtractRefasterSourcesTransform.ARTIFACT_TYPE, artifactType);
+                spec.getTo()
+                        .attribute(
+                                ExtractRefasterSourcesTransform.ARTIFACT_TYPE,
+                                ExtractRefasterSourcesTransform.REFASTER_SOURCES_TYPE);
+            });
+        }
+
         Provider<File> refasterRulesFile = project.getLayout()
                 .getBuildDirectory()
                 .file("refaster/rules.refaster")
@@ -105,8 +134,7 @@ public final class BaselineErrorProne implements Plugin<Project> {
 
         CompileRefasterTask compileRefaster = project.getTasks()
                 .create("compileRefaster", CompileRefasterTask.class, task -> {
-                    task.setSource(refasterConfiguration);
-                    task.getRefasterSources().set(refasterConfiguration);
+                    task.getRefasterSources().from(extractedRefasterSources(refasterConfiguration));
                     task.setClasspath(refasterCompilerConfiguration);
                     task.getRefasterRulesFile().set(refasterRulesFile);
                 });
@@ -143,6 +171,7 @@ public final class BaselineErrorProne implements Plugin<Project> {
                     .configure(ErrorProneOptions.class, errorProneOptions -> {
                         configureErrorProneOptions(
                                 project,
+                                classpathCapabilities,
                                 refasterRulesFile,
                                 compileRefaster,
                                 errorProneExtension,
@@ -172,26 +201,64 @@ public final class BaselineErrorProne implements Plugin<Project> {
                 }));
 
         project.getPluginManager().withPlugin("java-gradle-plugin", appliedPlugin -> {
-            project.getTasks().withType(JavaCompile.class).configureEach(javaCompile -> ((ExtensionAware)
-                            javaCompile.getOptions())
-                    .getExtensions()
-                    .configure(ErrorProneOptions.class, errorProneOptions -> {
-                        errorProneOptions.check("Slf4jLogsafeArgs", CheckSeverity.OFF);
-                        errorProneOptions.check("PreferSafeLoggableExceptions", CheckSeverity.OFF);
-                        errorProneOptions.check("PreferSafeLoggingPreconditions", CheckSeverity.OFF);
-                        errorProneOptions.check("PreconditionsConstantMessage", CheckSeverity.OFF);
-                    }));
+            project.getTasks()
+                    .withType(JavaCompile.class)
+                    .matching(javaCompile -> !javaCompile.equals(compileRefaster))
+                    .configureEach(javaCompile -> ((ExtensionAware) javaCompile.getOptions())
+                            .getExtensions()
+                            .configure(ErrorProneOptions.class, errorProneOptions -> {
+                                errorProneOptions.check("Slf4jLogsafeArgs", CheckSeverity.OFF);
+                                errorProneOptions.check("PreferSafeLoggableExceptions", CheckSeverity.OFF);
+                                errorProneOptions.check("PreferSafeLoggingPreconditions", CheckSeverity.OFF);
+                                errorProneOptions.check("PreconditionsConstantMessage", CheckSeverity.OFF);
+                            }));
         });
     }
 
+    /**
+     * Returns the extracted sources of the refaster rules declared directly in the given configuration. Transitive
+     * dependencies are only required on the classpath.
+     */
+    private static FileCollection extractedRefasterSources(Configuration refasterConfiguration) {
+        Supplier<Set<ComponentIdentifier>> declaredComponents = Suppliers.memoize(() -> refasterConfiguration
+                .getIncoming()
+                .getResolutionResult()
+                .getRoot()
+                .getDependencies()
+                .stream()
+                .filter(dependency -> dependency instanceof ResolvedDependencyResult)
+                .map(dependency -> ((ResolvedDependencyResult) dependency).getSelected().getId())
+                .collect(Collectors.toSet()));
+        return refasterConfiguration
+                .getIncoming()
+                .artifactView(view -> {
+                    // Resolved strictly, so a rule source which can't be resolved fails the build rather than
+                    // silently disabling refaster
+                    view.attributes(attributes -> attributes.attribute(
+                            ExtractRefasterSourcesTransform.ARTIFACT_TYPE,
+                            ExtractRefasterSourcesTransform.REFASTER_SOURCES_TYPE));
+                    view.componentFilter(id -> declaredComponents.get().contains(id));
+                })
+                .getFiles();
+    }
+
     @SuppressWarnings("UnstableApiUsage")
     private static void configureErrorProneOptions(
             Project project,
+            ClasspathCapabilities classpathCapabilities,
             Provider<File> refasterRulesFile,
             CompileRefasterTask compileRefaster,
             BaselineErrorProneExtension errorProneExtension,
             JavaCompile javaCompile,
             ErrorProneOptions errorProneOptions) {
+        if (javaCompile.equals(compileRefaster)) {
+            // Rules are compiled by a javac plugin rather than by error-prone. Leaving every option at its default
+            // keeps project specific paths out of the task inputs, so compiled rules are shared through the build
+            // cache across projects and checkouts.
+            errorProneOptions.setEnabled(false);
+            return;
+        }
+
         JavaVersion jdkVersion =
                 JavaVersion.toVersion(javaCompile.getToolChain().getVersion());
 
@@ -236,10 +303,50 @@ public final class BaselineErrorProne implements Plugin<Project> {
             errorProneOptions.check("TypeParameterUnusedInFormals", CheckSeverity.OFF);
         }
 
-        if (javaCompile.equals(compileRefaster)) {
-            // Don't apply refaster to itself...
-            return;
-        }
+        errorProneOptions.getErrorproneArgumentProviders().add(new CommandLineArgumentProvider() {
+            // intentionally not using a lambda to reduce gradle warnings
+            @Override
+            public Iterable<String> asArguments() {
+                List<String> heavyweightObjectTypes = errorProneExtension.getHeavyweightObjectTypes().get();
+                return heavyweightObjectTypes.isEmpty()
+                        ? Collections.emptyList()
+                        : ImmutableList.of("-XepOpt:" + HEAVYWEIGHT_OBJECT_TYPES_FLAG + "="
+                                + Joiner.on(',').join(heavyweightObjectTypes));
+            }
+        });
+
+        Optional<SourceSet> maybeSourceSet = project
+                .getConvention()
+                .getPlugin(JavaPluginConvention.class)
+                .getSourceSets()
+                .matching(ss -> javaCompile.getName().equals(ss.getCompileJavaTaskName()))
+                .stream()
+                .collect(MoreCollectors.toOptional());
+
+        // Checks targeting a library which is absent from the classpath can never match, so skip them entirely
+        maybeSourceSet.ifPresent(sourceSet -> {
+            errorProneOptions.getErrorproneArgumentProviders().add(new CommandLineArgumentProvider() {
+                // intentionally not using a lambda to reduce gradle warnings
+                @Override
+                public Iterable<String> asArguments() {
+                    Configuration compileClasspath =
+                            project.getConfigurations().getByName(sourceSet.getCompileClasspathConfigurationName());
+                    List<String> arguments = new ArrayList<>();
+                    for (String check : classpathCapabilities.unavailableChecks(compileClasspath)) {
+                        if (!checkExplicitlyConfigured(errorProneOptions, check)) {
+                            log.info(
+                                    "Task {}: disabling error-prone check {} as {} from {}",
+                                    javaCompile.getPath(),
+                                    check,
+                                    ClasspathCapabilities.describeMissing(check),
+                                    compileClasspath);
+                            arguments.add(String.format("-Xep:%s:OFF", check));
+                        }
+                    }
+                    return arguments;
+                }
+            });
+        });
 
         if (isRefactoring(project)) {
             // Don't attempt to cache since it won't capture the source files that might be modified
@@ -257,17 +364,10 @@ public final class BaselineErrorProne implements Plugin<Project> {
                                 : Collections.emptyList();
                     }
                 });
+                configureRefasterStats(project, javaCompile);
             }
 
             if (isErrorProneRefactoring(project)) {
-                Optional<SourceSet> maybeSourceSet = project
-                        .getConvention()
-                        .getPlugin(JavaPluginConvention.class)
-                        .getSourceSets()
-                        .matching(ss -> javaCompile.getName().equals(ss.getCompileJavaTaskName()))
-                        .stream()
-                        .collect(MoreCollectors.toOptional());
-
                 // TODO(gatesn): Is there a way to discover error-prone checks?
                 // Maybe service-load from a ClassLoader configured with annotation processor path?
                 // https://github.com/google/error-prone/pull/947
@@ -278,7 +378,12 @@ public final class BaselineErrorProne implements Plugin<Project> {
                         // Don't apply checks that have been explicitly disabled
                         Stream<String> errorProneChecks = getSpecificErrorProneChecks(project)
                                 .orElseGet(() -> getNotDisabledErrorproneChecks(
-                                        project, errorProneExtension, javaCompile, maybeSourceSet, errorProneOptions));
+                                        project,
+                                        classpathCapabilities,
+                                        errorProneExtension,
+                                        javaCompile,
+                                        maybeSourceSet,
+                                        errorProneOptions));
                         return ImmutableList.of(
                                 "-XepPatchChecks:" + Joiner.on(',').join(errorProneChecks.iterator()),
                                 "-XepPatchLocation:IN_PLACE");
@@ -288,6 +393,49 @@ public final class BaselineErrorProne implements Plugin<Project> {
         }
     }
 
+    /**
+     * Sums up the stats of every compilation in the build once they have finished. Only compilations which are part
+     * of this build are read, so stats left behind by earlier builds are ignored.
+     */
+    private static void registerRefasterStats(Project rootProject) {
+        rootProject.getTasks().register(REFASTER_STATS_TASK, RefasterStatsTask.class, task -> {
+            task.getStatsFiles().from(rootProject.provider(() -> rootProject.getGradle().getTaskGraph().getAllTasks()
+                    .stream()
+                    .filter(graphTask -> graphTask instanceof JavaCompile)
+                    .map(graphTask -> refasterStatsFile(graphTask.getProject(), graphTask.getName()))
+                    .collect(Collectors.toList())));
+        });
+    }
+
+    /**
+     * Records per-rule refaster stats for each compilation, which the root project's {@code refasterStats} task sums up
+     * once the compilations have finished.
+     */
+    private static void configureRefasterStats(Project project, JavaCompile javaCompile) {
+        File statsFile = refasterStatsFile(project, javaCompile.getName());
+        javaCompile.doFirst(new Action<Task>() {
+            // intentionally not using a lambda to reduce gradle warnings
+            @Override
+            public void execute(Task task) {
+                project.delete(statsFile);
+            }
+        });
+        javaCompile.getOptions().getCompilerArgumentProviders().add(new CommandLineArgumentProvider() {
+            // intentionally not using a lambda to reduce gradle warnings
+            @Override
+            public Iterable<String> asArguments() {
+                return ImmutableList.of("-XD" + REFASTER_STATS_OPTION + "=" + statsFile.getAbsolutePath());
+            }
+        });
+
+        // A live view of the root project's tasks, which is empty unless the root project applies this plugin
+        javaCompile.finalizedBy(project.getRootProject().getTasks().withType(RefasterStatsTask.class));
+    }
+
+    private static File refasterStatsFile(Project project, String compileTaskName) {
+        return new File(project.getBuildDir(), "refaster/stats/" + compileTaskName + ".json");
+    }
+
     private static Optional<Stream<String>> getSpecificErrorProneChecks(Project project) {
         return Optional.ofNullable(project.findProperty(PROP_ERROR_PRONE_APPLY))
                 .map(Objects::toString)
@@ -298,14 +446,16 @@ public final class BaselineErrorProne implements Plugin<Project> {
 
     private static Stream<String> getNotDisabledErrorproneChecks(
             Project project,
+            ClasspathCapabilities classpathCapabilities,
             BaselineErrorProneExtension errorProneExtension,
             JavaCompile javaCompile,
             Optional<SourceSet> maybeSourceSet,
             ErrorProneOptions errorProneOptions) {
-        // If this javaCompile is associated with a source set, use it to figure out if it has preconditions or not.
-        Predicate<String> filterOutPreconditions = maybeSourceSet
-                .map(ss -> filterOutPreconditions(
-                        project.getConfigurations().getByName(ss.getCompileClasspathConfigurationName())))
+        // If this javaCompile is associated with a source set, use it to figure out which libraries it uses.
+        Predicate<String> filterOutUnavailableChecks = maybeSourceSet
+                .map(ss -> project.getConfigurations().getByName(ss.getCompileClasspathConfigurationName()))
+                .map(compileClasspath -> filterOutUnavailableChecks(
+                        classpathCapabilities.unavailableChecks(compileClasspath), compileClasspath))
                 .orElse(check -> true);
 
         return errorProneExtension.getPatchChecks().get().stream().filter(check -> {
@@ -316,49 +466,35 @@ public final class BaselineErrorProne implements Plugin<Project> {
                         check);
                 return false;
             }
-            return filterOutPreconditions.test(check);
+            return filterOutUnavailableChecks.test(check);
         });
     }
 
-    private static boolean hasDependenciesMatching(Configuration configuration, Spec<ModuleComponentIdentifier> spec) {
-        return !Iterables.isEmpty(configuration
-                .getIncoming()
-                .artifactView(viewConfiguration -> viewConfiguration.componentFilter(ci ->
-                        ci instanceof ModuleComponentIdentifier && spec.isSatisfiedBy((ModuleComponentIdentifier) ci)))
-                .getArtifacts());
-    }
-
     /** Filters out preconditions checks if the required libraries are not on the classpath. */
     public static Predicate<String> filterOutPreconditions(Configuration compileClasspath) {
-        boolean hasPreconditions =
-                hasDependenciesMatching(compileClasspath, BaselineErrorProne::isSafeLoggingPreconditionsDep);
+        Predicate<String> filterOutUnavailableChecks = filterOutUnavailableChecks(
+                ClasspathCapabilities.computeUnavailableChecks(compileClasspath), compileClasspath);
+        return check -> !ClasspathCapabilities.requiredCapability(check)
+                        .equals(Optional.of(ClasspathCapabilities.Capability.SAFE_LOGGING_PRECONDITIONS))
+                || filterOutUnavailableChecks.test(check);
+    }
 
+    /** Filters out checks whose target library is not on the classpath. */
+    private static Predicate<String> filterOutUnavailableChecks(
+            Set<String> unavailableChecks, Configuration compileClasspath) {
         return check -> {
-            if (!hasPreconditions) {
-                if (check.equals("PreferSafeLoggingPreconditions")) {
-                    log.info(
-                            "Disabling check PreferSafeLoggingPreconditions as "
-                                    + "'com.palantir.safe-logging:preconditions' missing from {}",
-                            compileClasspath);
-                    return false;
-                }
-                if (check.equals("PreferSafeLoggableExceptions")) {
-                    log.info(
-                            "Disabling check PreferSafeLoggableExceptions as 'com.palantir.safe-logging:preconditions' "
-                                    + "missing from {}",
-                            compileClasspath);
-                    return false;
-                }
+            if (unavailableChecks.contains(check)) {
+                log.info(
+                        "Disabling check {} as {} from {}",
+                        check,
+                        ClasspathCapabilities.describeMissing(check),
+                        compileClasspath);
+                return false;
             }
             return true;
         };
     }
 
-    private static boolean isSafeLoggingPreconditionsDep(ModuleComponentIdentifier mci) {
-        return mci.getGroup().equals("com.palantir.safe-logging")
-                && mci.getModule().equals("preconditions");
-    }
-
     private static boolean isRefactoring(Project project) {
         return isRefasterRefactoring(project) || isErrorProneRefactoring(project);
     }
@@ -377,6 +513,12 @@ public final class BaselineErrorProne implements Plugin<Project> {
                 || errorProneOptions.getErrorproneArgs().contains(String.format("-Xep:%s:OFF", check));
     }
 
+    private static boolean checkExplicitlyConfigured(ErrorProneOptions errorProneOptions, String check) {
+        return errorProneOptions.getChecks().containsKey(check)
+                || errorProneOptions.getErrorproneArgs().stream().anyMatch(arg -> arg.startsWith("-Xep:" + check + ":")
+                        || arg.equals("-Xep:" + check));
+    }
+
     private static final class LazyConfigurationList extends AbstractList<File> {
         private final FileCollection files;
         private List<File> fileList;
@@ -0,0 +1,154 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.plugins;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.concurrent.ThreadSafe;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.FileCollectionDependency;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.result.ResolutionResult;
+import org.gradle.api.artifacts.result.ResolvedComponentResult;
+import org.gradle.api.invocation.Gradle;
+import org.gradle.api.plugins.ExtensionAware;
+import org.gradle.api.plugins.ExtensionContainer;
+
+/**
+ * Records which of the libraries targeted by baseline error-prone checks are present on a compile classpath, so
+ * checks that can never match are not run. A single instance is shared by every project in a build and is attached to
+ * the build itself, so nothing is retained once the build has finished.
+ */
+@ThreadSafe
+public final class ClasspathCapabilities {
+
+    private static final String EXTENSION_NAME = "baselineClasspathCapabilities";
+
+    /** Checks which can only ever match code that uses a particular library. */
+    private static final ImmutableMap<String, Capability> REQUIRED_CAPABILITIES =
+            ImmutableMap.<String, Capability>builder()
+                    .put("DangerousJsonTypeInfoUsage", Capability.JACKSON_ANNOTATIONS)
+                    .put("DangerousThrowableMessageSafeArg", Capability.SAFE_LOGGING)
+                    .put("JUnit5RuleUsage", Capability.JUNIT_JUPITER)
+                    .put("JooqResultStreamLeak", Capability.JOOQ)
+                    .put("LogSafePreconditionsMessageFormat", Capability.SAFE_LOGGING_PRECONDITIONS)
+                    .put("LoggerEnclosingClass", Capability.SLF4J)
+                    .put("PreferSafeLoggableExceptions", Capability.SAFE_LOGGING_PRECONDITIONS)
+                    .put("PreferSafeLoggingPreconditions", Capability.SAFE_LOGGING_PRECONDITIONS)
+                    .put("PreventTokenLogging", Capability.AUTH_TOKENS)
+                    .put("SafeLoggingExceptionMessageFormat", Capability.SAFE_LOGGING_PRECONDITIONS)
+                    .put("Slf4jConstantLogMessage", Capability.SLF4J)
+                    .put("Slf4jLevelCheck", Capability.SLF4J)
+                    .put("Slf4jLogsafeArgs", Capability.SLF4J)
+                    .put("Slf4jThrowable", Capability.SLF4J)
+                    .put("UnsafeGaugeRegistration", Capability.TRITIUM)
+                    .build();
+
+    // A configuration can only be resolved once, so its answer never changes for the rest of the build
+    private final Map<Configuration, ImmutableSet<String>> unavailableChecksByClasspath = new ConcurrentHashMap<>();
+
+    private ClasspathCapabilities() {}
+
+    /** Returns the instance shared by every project in the given build. */
+    public static synchronized ClasspathCapabilities forBuild(Gradle gradle) {
+        ExtensionContainer extensions = ((ExtensionAware) gradle).getExtensions();
+        ClasspathCapabilities existing = extensions.findByType(ClasspathCapabilities.class);
+        if (existing != null) {
+            return existing;
+        }
+        ClasspathCapabilities created = new ClasspathCapabilities();
+        extensions.add(ClasspathCapabilities.class, EXTENSION_NAME, created);
+        return created;
+    }
+
+    /** Returns the library a check requires in order to ever produce a finding, if any. */
+    public static Optional<Capability> requiredCapability(String check) {
+        return Optional.ofNullable(REQUIRED_CAPABILITIES.get(check));
+    }
+
+    /**
+     * Returns all checks which cannot match code compiled against the given classpath. Nothing is returned if the
+     * classpath contains file or project dependencies, as their contents aren't known until they have been built.
+     */
+    public ImmutableSet<String> unavailableChecks(Configuration classpath) {
+        return unavailableChecksByClasspath.computeIfAbsent(
+                classpath, ClasspathCapabilities::computeUnavailableChecks);
+    }
+
+    /** Computes {@link #unavailableChecks} without recording the result, for callers without access to the build. */
+    public static ImmutableSet<String> computeUnavailableChecks(Configuration classpath) {
+        if (!classpath.getAllDependencies().withType(FileCollectionDependency.class).isEmpty()) {
+            return ImmutableSet.of();
+        }
+        // The resolution result only requires the dependency graph, unlike an artifact view which resolves files
+        ResolutionResult resolutionResult = classpath.getIncoming().getResolutionResult();
+        ResolvedComponentResult root = resolutionResult.getRoot();
+        Set<String> modules = new HashSet<>();
+        for (ResolvedComponentResult component : resolutionResult.getAllComponents()) {
+            ComponentIdentifier id = component.getId();
+            if (id instanceof ModuleComponentIdentifier) {
+                modules.add(coordinate((ModuleComponentIdentifier) id));
+            } else if (!component.equals(root)) {
+                return ImmutableSet.of();
+            }
+        }
+        return REQUIRED_CAPABILITIES.entrySet().stream()
+                .filter(entry -> !modules.contains(entry.getValue().coordinate()))
+                .map(Map.Entry::getKey)
+                .collect(ImmutableSet.toImmutableSet());
+    }
+
+    /** Returns the reason a check is considered unavailable, for logging. */
+    public static String describeMissing(String check) {
+        return requiredCapability(check)
+                .map(capability -> "'" + capability.coordinate() + "' missing")
+                .orElse("its library missing");
+    }
+
+    private static String coordinate(ModuleComponentIdentifier id) {
+        return id.getGroup() + ":" + id.getModule();
+    }
+
+    public enum Capability {
+        AUTH_TOKENS("com.palantir.tokens", "auth-tokens"),
+        JACKSON_ANNOTATIONS("com.fasterxml.jackson.core", "jackson-annotations"),
+        JOOQ("org.jooq", "jooq"),
+        JUNIT_JUPITER("org.junit.jupiter", "junit-jupiter-api"),
+        SAFE_LOGGING("com.palantir.safe-logging", "safe-logging"),
+        SAFE_LOGGING_PRECONDITIONS("com.palantir.safe-logging", "preconditions"),
+        SLF4J("org.slf4j", "slf4j-api"),
+        TRITIUM("com.palantir.tritium", "tritium-registry");
+
+        private final String group;
+        private final String module;
+
+        Capability(String group, String module) {
+            this.group = group;
+            this.module = module;
+        }
+
+        String coordinate() {
+            return group + ":" + module;
+        }
+    }
+}
@@ -81,7 +81,7 @@ public final class ClassUniquenessAnalyzer {
                         continue;
                     }
 
-                    String className = entry.getName().replaceAll("/", ".").replaceAll(".class", "");
+                    String className = entry.getName().replace("/", ".").replace(".class", "");
                     HashingInputStream inputStream = new HashingInputStream(Hashing.sha256(), jarInputStream);
                     ByteStreams.exhaust(inputStream);
 
@@ -18,27 +18,28 @@ package com.palantir.baseline.tasks;
 
 import com.google.common.collect.ImmutableList;
 import java.io.File;
-import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
-import org.gradle.api.artifacts.Configuration;
-import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
 import org.gradle.api.tasks.InputFiles;
 import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.compile.JavaCompile;
 import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
 
+@CacheableTask
 public class CompileRefasterTask extends JavaCompile {
 
-    private final Property<Configuration> refasterSources =
-            getProject().getObjects().property(Configuration.class);
+    private final ConfigurableFileCollection refasterSources = getProject().files();
     private final Property<File> refasterRulesFile = getProject().getObjects().property(File.class);
 
     public CompileRefasterTask() {
         // Don't care about .class files
         setDestinationDir(getTemporaryDir());
 
+        setSource(refasterSources.getAsFileTree().matching(filter -> filter.include("**/*.java")));
+
         // Ensure we hit the incremental code-path since we override it
         getOptions().setIncremental(true);
     }
@@ -53,34 +54,13 @@ public class CompileRefasterTask extends JavaCompile {
                 .setCompilerArgs(ImmutableList.of("-Xplugin:BaselineRefasterCompiler --out "
                         + refasterRulesFile.get().getAbsolutePath()));
 
-        // Extract Java sources
-        List<File> javaSources =
-                getRefasterSources().get().getResolvedConfiguration().getFirstLevelModuleDependencies().stream()
-                        .flatMap(dep -> dep.getModuleArtifacts().stream())
-                        .map(ResolvedArtifact::getFile)
-                        .flatMap(file -> {
-                            if (file.getName().endsWith(".jar")) {
-                                return getProject().zipTree(file).getFiles().stream()
-                                        .filter(zipFile -> zipFile.getName().endsWith(".java"));
-                            } else if (file.getName().endsWith(".java")) {
-                                return Stream.of(file);
-                            } else {
-                                getLogger().warn("Skipping refaster rule: {}", file);
-                                return Stream.empty();
-                            }
-                        })
-                        .collect(Collectors.toList());
-
-        if (!javaSources.isEmpty()) {
-            setSource(javaSources);
-            super.compile(inputs);
-        } else {
-            setDidWork(false);
-        }
+        super.compile(inputs);
     }
 
+    /** Directories containing the java sources of the refaster rules to compile. */
     @InputFiles
-    public final Property<Configuration> getRefasterSources() {
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public final ConfigurableFileCollection getRefasterSources() {
         return refasterSources;
     }
 
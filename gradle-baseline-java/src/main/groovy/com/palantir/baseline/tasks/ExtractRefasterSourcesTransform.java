@@ -0,0 +1,89 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.tasks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Enumeration;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.gradle.api.artifacts.transform.CacheableTransform;
+import org.gradle.api.artifacts.transform.InputArtifact;
+import org.gradle.api.artifacts.transform.TransformAction;
+import org.gradle.api.artifacts.transform.TransformOutputs;
+import org.gradle.api.artifacts.transform.TransformParameters;
+import org.gradle.api.attributes.Attribute;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+
+/**
+ * Extracts the java sources of refaster rules, either from a sources jar or a single java file, into a directory.
+ *
+ * <p>Extracted sources live in the transforms cache, so they are shared by every project and build using the same
+ * rules.
+ */
+@CacheableTransform
+public abstract class ExtractRefasterSourcesTransform implements TransformAction<TransformParameters.None> {
+
+    public static final Attribute<String> ARTIFACT_TYPE = Attribute.of("artifactType", String.class);
+    public static final String REFASTER_SOURCES_TYPE = "refaster-sources";
+
+    @InputArtifact
+    @PathSensitive(PathSensitivity.NAME_ONLY)
+    public abstract File getInputArtifact();
+
+    @Override
+    public final void transform(TransformOutputs outputs) {
+        File input = getInputArtifact();
+        String name = input.getName();
+        try {
+            if (name.endsWith(".jar")) {
+                extractJavaSources(input, outputs.dir(name.substring(0, name.length() - ".jar".length())).toPath());
+            } else if (name.endsWith(".java")) {
+                Path destination = outputs.dir("sources").toPath().resolve(name);
+                Files.copy(input.toPath(), destination, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to extract refaster sources from " + input, e);
+        }
+    }
+
+    private static void extractJavaSources(File jar, Path destination) throws IOException {
+        try (ZipFile zipFile = new ZipFile(jar)) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory() || !entry.getName().endsWith(".java")) {
+                    continue;
+                }
+                Path target = destination.resolve(entry.getName()).normalize();
+                if (!target.startsWith(destination)) {
+                    throw new IOException("Refusing to extract entry outside of the destination: " + entry.getName());
+                }
+                Files.createDirectories(target.getParent());
+                try (InputStream inputStream = zipFile.getInputStream(entry)) {
+                    Files.copy(inputStream, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.tasks;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import groovy.json.JsonOutput;
+import groovy.json.JsonSlurper;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * Sums the per-rule refaster stats written by every compilation of a build into a single report, sorted by the time
+ * spent in each rule.
+ */
+public class RefasterStatsTask extends DefaultTask {
+
+    private static final ImmutableList<String> COUNTERS = ImmutableList.of("attempts", "matches", "fixes", "nanos");
+
+    private final ConfigurableFileCollection statsFiles = getProject().files();
+    private final File reportFile = new File(getProject().getBuildDir(), "refaster/stats.json");
+
+    public RefasterStatsTask() {
+        setDescription("Aggregates the stats recorded by refaster while applying rules with -PrefasterApply");
+    }
+
+    @InputFiles
+    @PathSensitive(PathSensitivity.ABSOLUTE)
+    public final ConfigurableFileCollection getStatsFiles() {
+        return statsFiles;
+    }
+
+    @OutputFile
+    public final File getReportFile() {
+        return reportFile;
+    }
+
+    @TaskAction
+    public final void aggregate() {
+        Map<String, Map<String, Long>> totalsByRule = new TreeMap<>();
+        for (File statsFile : statsFiles.getFiles()) {
+            if (!statsFile.isFile()) {
+                continue;
+            }
+            for (Map<String, Object> rule : rules(statsFile)) {
+                Map<String, Long> totals =
+                        totalsByRule.computeIfAbsent((String) rule.get("rule"), name -> new TreeMap<>());
+                for (String counter : COUNTERS) {
+                    totals.merge(counter, ((Number) rule.get(counter)).longValue(), Long::sum);
+                }
+            }
+        }
+
+        List<Map<String, Object>> report = totalsByRule.entrySet().stream()
+                .sorted(Comparator.comparing(
+                        (Map.Entry<String, Map<String, Long>> entry) -> entry.getValue().get("nanos"),
+                        Comparator.reverseOrder()))
+                .map(entry -> ImmutableMap.<String, Object>builder()
+                        .put("rule", entry.getKey())
+                        .putAll(entry.getValue())
+                        .build())
+                .collect(ImmutableList.toImmutableList());
+
+        try {
+            Files.createDirectories(reportFile.getParentFile().toPath());
+            Files.write(
+                    reportFile.toPath(),
+                    JsonOutput.prettyPrint(JsonOutput.toJson(ImmutableMap.of("rules", report)))
+                            .getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write refaster stats report", e);
+        }
+        getLogger().lifecycle("Refaster stats written to {}", reportFile);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> rules(File statsFile) {
+        Map<String, Object> stats = (Map<String, Object>) new JsonSlurper().parse(statsFile);
+        return (List<Map<String, Object>>) stats.get("rules");
+    }
+}
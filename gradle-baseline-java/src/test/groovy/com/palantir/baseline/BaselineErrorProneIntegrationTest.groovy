@@ -197,6 +197,91 @@ class BaselineErrorProneIntegrationTest extends AbstractPluginTest {
         '''.stripIndent()
     }
 
+    def 'compileJava does not apply patches for error-prone checks whose library is missing from the classpath'() {
+        when:
+        buildFile << standardBuildFile
+        file('src/main/java/test/Test.java') << validJavaFile
+
+        then:
+        BuildResult result = with('compileJava', '-PerrorProneApply', '--info').build()
+        result.task(":compileJava").outcome == TaskOutcome.SUCCESS
+        result.output.contains("Disabling check Slf4jLogsafeArgs as 'org.slf4j:slf4j-api' missing")
+        result.output.contains("Disabling check PreferSafeLoggingPreconditions as "
+                + "'com.palantir.safe-logging:preconditions' missing")
+    }
+
+    def 'compileJava disables error-prone checks whose library is missing from the classpath'() {
+        when:
+        buildFile << standardBuildFile
+        file('src/main/java/test/Test.java') << validJavaFile
+
+        then:
+        BuildResult result = with('compileJava', '--info').build()
+        result.task(":compileJava").outcome == TaskOutcome.SUCCESS
+        result.output.contains("Task :compileJava: disabling error-prone check Slf4jLogsafeArgs as "
+                + "'org.slf4j:slf4j-api' missing")
+    }
+
+    def 'compileJava keeps error-prone checks enabled when the classpath contains file dependencies'() {
+        when:
+        buildFile << standardBuildFile
+        buildFile << """
+            dependencies {
+                implementation files('libs/opaque.jar')
+            }
+        """.stripIndent()
+        file('src/main/java/test/Test.java') << validJavaFile
+
+        then:
+        BuildResult result = with('compileJava', '--info').build()
+        result.task(":compileJava").outcome == TaskOutcome.SUCCESS
+        !result.output.contains("disabling error-prone check")
+    }
+
+    def 'compileJava applies patches for every check when the classpath contains file dependencies'() {
+        when:
+        buildFile << standardBuildFile
+        buildFile << """
+            dependencies {
+                implementation files('libs/opaque.jar')
+            }
+        """.stripIndent()
+        file('src/main/java/test/Test.java') << validJavaFile
+
+        then:
+        BuildResult result = with('compileJava', '-PerrorProneApply', '--info').build()
+        result.task(":compileJava").outcome == TaskOutcome.SUCCESS
+        !result.output.contains("Disabling check")
+    }
+
+    def 'compileJava passes heavyweight object types to error-prone'() {
+        when:
+        buildFile << standardBuildFile
+        buildFile << """
+            baselineErrorProne {
+                heavyweightObjectTypes.add('test.Client')
+            }
+        """.stripIndent()
+        file('src/main/java/test/Client.java') << '''
+        package test;
+        public class Client {}
+        '''.stripIndent()
+        file('src/main/java/test/Test.java') << '''
+        package test;
+        public class Test {
+            Object test() {
+                Client client = new Client();
+                return client;
+            }
+        }
+        '''.stripIndent()
+
+        then:
+        BuildResult result = with('compileJava').build()
+        result.task(":compileJava").outcome == TaskOutcome.SUCCESS
+        result.output.contains("[HeavyweightObjectPerCall] Client is expensive to create")
+    }
+
     enum CheckConfigurationMethod { ARG, DSL }
 
     @Unroll
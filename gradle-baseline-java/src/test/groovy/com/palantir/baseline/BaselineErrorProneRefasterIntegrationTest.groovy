@@ -18,6 +18,7 @@ package com.palantir.baseline
 
 
 import org.gradle.testkit.runner.BuildResult
+import org.gradle.testkit.runner.GradleRunner
 import org.gradle.testkit.runner.TaskOutcome
 /**
  * This test depends on ./gradlew :baseline-error-prone:publishToMavenLocal
@@ -65,6 +66,65 @@ class BaselineErrorProneRefasterIntegrationTest extends AbstractPluginTest {
         '''.stripIndent()
     }
 
+    def 'refasterStats reports applied rules'() {
+        when:
+        buildFile << standardBuildFile
+        file('src/main/java/test/Test.java') << '''
+        package test;
+        import java.util.ArrayList;
+        public class Test {
+            boolean empty = new ArrayList<>().size() == 0;
+        }
+        '''.stripIndent()
+
+        then:
+        BuildResult result = with('compileJava', '-i', '-PrefasterApply').build()
+        result.task(":refasterStats").outcome == TaskOutcome.SUCCESS
+        file('build/refaster/stats/compileJava.json').exists()
+        def stats = new groovy.json.JsonSlurper().parse(file('build/refaster/stats.json'))
+        def collectionsIsEmpty = stats.rules.find { it.rule == 'com.palantir.baseline.refaster.CollectionsIsEmpty' }
+        collectionsIsEmpty.attempts == 1
+        collectionsIsEmpty.fixes == 1
+    }
+
+    def 'refasterStats sums up the stats of every project'() {
+        when:
+        buildFile << standardBuildFile
+        file('src/main/java/test/Test.java') << '''
+        package test;
+        import java.util.ArrayList;
+        public class Test {
+            boolean empty = new ArrayList<>().size() == 0;
+        }
+        '''.stripIndent()
+        multiProject.addSubproject('sub', '''
+            apply plugin: 'java'
+            apply plugin: 'com.palantir.baseline-error-prone'
+            repositories {
+                mavenLocal()
+                jcenter()
+                maven { url  "http://palantir.bintray.com/releases" }
+            }
+        '''.stripIndent())
+        file('sub/src/main/java/test/Sub.java') << '''
+        package test;
+        import java.util.ArrayList;
+        public class Sub {
+            boolean empty = new ArrayList<>().size() == 0;
+        }
+        '''.stripIndent()
+
+        then:
+        BuildResult result = with('compileJava', '-i', '-PrefasterApply').build()
+        result.task(":sub:compileJava").outcome == TaskOutcome.SUCCESS
+        result.task(":refasterStats").outcome == TaskOutcome.SUCCESS
+        file('sub/build/refaster/stats/compileJava.json').exists()
+        def stats = new groovy.json.JsonSlurper().parse(file('build/refaster/stats.json'))
+        def collectionsIsEmpty = stats.rules.find { it.rule == 'com.palantir.baseline.refaster.CollectionsIsEmpty' }
+        collectionsIsEmpty.attempts == 2
+        collectionsIsEmpty.fixes == 2
+    }
+
     def 'compileJava with refaster fixes SortedFirst'() {
         when:
         buildFile << standardBuildFile
@@ -149,6 +209,44 @@ class BaselineErrorProneRefasterIntegrationTest extends AbstractPluginTest {
         '''.stripIndent()
     }
 
+    def 'compileRefaster is up to date when rules are unchanged'() {
+        when:
+        buildFile << standardBuildFile
+
+        then:
+        with('compileRefaster').build().task(":compileRefaster").outcome == TaskOutcome.SUCCESS
+        file('build/refaster/rules.refaster').exists()
+        with('compileRefaster').build().task(":compileRefaster").outcome == TaskOutcome.UP_TO_DATE
+    }
+
+    def 'compileRefaster is loaded from the build cache in another project'() {
+        when:
+        File cacheDir = directory('build-cache')
+        ['first', 'second'].each { name ->
+            file("${name}/settings.gradle") << """
+            buildCache {
+                local {
+                    directory = '${cacheDir.absolutePath.replace('\\', '/')}'
+                }
+            }
+            """.stripIndent()
+            file("${name}/build.gradle") << standardBuildFile
+        }
+
+        then:
+        compileRefasterIn('first').task(":compileRefaster").outcome == TaskOutcome.SUCCESS
+        compileRefasterIn('second').task(":compileRefaster").outcome == TaskOutcome.FROM_CACHE
+        file('second/build/refaster/rules.refaster').exists()
+    }
+
+    private BuildResult compileRefasterIn(String name) {
+        return GradleRunner.create()
+                .withProjectDir(directory(name))
+                .withArguments('compileRefaster', '--build-cache')
+                .withPluginClasspath()
+                .build()
+    }
+
     def 'refaster configuration can be overridden'() {
         when:
         buildFile << standardBuildFile